@@ -40,6 +40,7 @@ import org.ops4j.io.StreamUtils;
 import org.ops4j.pax.exam.ExamSystem;
 import org.ops4j.pax.exam.Option;
 import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.ReusableTestContainer;
 import org.ops4j.pax.exam.TestContainer;
 import org.ops4j.pax.exam.TestContainerException;
 import org.ops4j.pax.exam.forked.provision.PlatformImpl;
@@ -71,7 +72,7 @@ import org.slf4j.LoggerFactory;
  * @author Harald Wellmann
  * 
  */
-public class ForkedTestContainer implements TestContainer
+public class ForkedTestContainer implements ReusableTestContainer
 {
     private static Logger LOG = LoggerFactory.getLogger( ForkedTestContainer.class );
 
@@ -140,6 +141,22 @@ public class ForkedTestContainer implements TestContainer
         }
     }
 
+    public void uninstall( long bundleId )
+    {
+        try
+        {
+            remoteFramework.uninstallBundle( bundleId );
+        }
+        catch ( RemoteException exc )
+        {
+            throw new TestContainerException( exc );
+        }
+        catch ( BundleException exc )
+        {
+            throw new TestContainerException( exc );
+        }
+    }
+
     public TestContainer start()
     {
         try
@@ -41,6 +41,7 @@ import org.ops4j.pax.exam.Info;
 import org.ops4j.pax.exam.Option;
 import org.ops4j.pax.exam.ProbeInvoker;
 import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.ReusableTestContainer;
 import org.ops4j.pax.exam.TestContainer;
 import org.ops4j.pax.exam.TestContainerException;
 import org.ops4j.pax.exam.options.BootDelegationOption;
@@ -69,7 +70,7 @@ import org.slf4j.LoggerFactory;
  * @author Harald Wellmann
  * @since Jan 7, 2010
  */
-public class NativeTestContainer implements TestContainer
+public class NativeTestContainer implements ReusableTestContainer
 {
 
     final private static Logger LOG = LoggerFactory.getLogger( NativeTestContainer.class );
@@ -100,7 +101,11 @@ public class NativeTestContainer implements TestContainer
         try
         {
             Bundle b = m_framework.getBundleContext().installBundle( location, stream );
-            m_installed.push( b.getBundleId() );
+            // installing a location again returns the bundle installed before
+            if ( !m_installed.contains( b.getBundleId() ) )
+            {
+                m_installed.push( b.getBundleId() );
+            }
             LOG.debug( "Installed bundle " + b.getSymbolicName() + " as Bundle ID " + b.getBundleId() );
             setBundleStartLevel( b.getBundleId(), Constants.START_LEVEL_TEST_BUNDLE );
             b.start();
@@ -117,6 +122,23 @@ public class NativeTestContainer implements TestContainer
         return install("local",stream);
     }
 
+    public synchronized void uninstall( long bundleId )
+    {
+        try
+        {
+            m_installed.remove( bundleId );
+            Bundle bundle = m_framework.getBundleContext().getBundle( bundleId );
+            if ( bundle != null )
+            {
+                bundle.uninstall();
+                LOG.debug( "Uninstalled bundle " + bundleId );
+            }
+        } catch ( BundleException e )
+        {
+            throw new TestContainerException( "Unable to uninstall bundle " + bundleId, e );
+        }
+    }
+
     public synchronized void cleanup()
     {
         while ( (!m_installed.isEmpty()) )
@@ -125,6 +147,11 @@ public class NativeTestContainer implements TestContainer
             {
                 Long id = m_installed.pop();
                 Bundle bundle = m_framework.getBundleContext().getBundle( id );
+                if ( bundle == null )
+                {
+                    // uninstalled already
+                    continue;
+                }
                 bundle.uninstall();
                 LOG.debug( "Uninstalled bundle " + id );
             } catch ( BundleException e )
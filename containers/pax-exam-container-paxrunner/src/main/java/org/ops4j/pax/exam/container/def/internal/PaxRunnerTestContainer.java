@@ -28,6 +28,7 @@ import org.ops4j.pax.exam.ExamSystem;
 import org.ops4j.pax.exam.Info;
 import org.ops4j.pax.exam.RelativeTimeout;
 import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.ReusableTestContainer;
 import org.ops4j.pax.exam.TestContainer;
 import org.ops4j.pax.exam.TimeoutException;
 import org.ops4j.pax.exam.container.remote.RBCRemoteTarget;
@@ -50,7 +51,7 @@ import org.slf4j.LoggerFactory;
  * @author Toni Menzel (toni@okidokiteam.com)
  * @since 0.3.0, December 09, 2008
  */
-public class PaxRunnerTestContainer implements TestContainer {
+public class PaxRunnerTestContainer implements ReusableTestContainer {
 
     private static final String RUNNER_TEST_CONTAINER = "PaxRunnerTestContainer.start";
     private static final Logger LOG = LoggerFactory.getLogger( PaxRunnerTestContainer.class );
@@ -203,6 +204,11 @@ public class PaxRunnerTestContainer implements TestContainer {
         return m_target.install( location, stream );
     }
 
+    public synchronized void uninstall( long bundleId )
+    {
+        m_target.uninstall( bundleId );
+    }
+
     /**
      * {@inheritDoc}
      */
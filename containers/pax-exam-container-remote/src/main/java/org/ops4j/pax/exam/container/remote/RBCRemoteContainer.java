@@ -21,7 +21,9 @@ import java.io.InputStream;
 
 import org.ops4j.pax.exam.ExamSystem;
 import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.ReusableTestContainer;
 import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestContainerException;
 import org.ops4j.pax.exam.TimeoutException;
 
 /**
@@ -31,7 +33,7 @@ import org.ops4j.pax.exam.TimeoutException;
  * @author Toni Menzel
  * @since Jan 26, 2010
  */
-public class RBCRemoteContainer implements TestContainer
+public class RBCRemoteContainer implements ReusableTestContainer
 {
 
     final private TestContainer m_target;
@@ -56,6 +58,15 @@ public class RBCRemoteContainer implements TestContainer
         return install("local",stream);
     }
 
+    public void uninstall( long bundleId )
+    {
+        if( !( m_target instanceof ReusableTestContainer ) )
+        {
+            throw new TestContainerException( m_target + " cannot uninstall bundles." );
+        }
+        ( (ReusableTestContainer) m_target ).uninstall( bundleId );
+    }
+
     public TestContainer start()
         throws TimeoutException
     {
@@ -22,6 +22,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.ops4j.pax.exam.RelativeTimeout;
 import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.ReusableTestContainer;
 import org.ops4j.pax.exam.TestContainer;
 import org.ops4j.pax.exam.TestContainerException;
 import org.ops4j.pax.exam.TimeoutException;
@@ -35,7 +36,7 @@ import org.ops4j.pax.exam.rbc.client.intern.RemoteBundleContextClientImpl;
  * @author Toni Menzel
  * @since Jan 25, 2010
  */
-public class RBCRemoteTarget implements TestContainer
+public class RBCRemoteTarget implements ReusableTestContainer
 {
 
     private static final Logger LOG = LoggerFactory.getLogger( RBCRemoteTarget.class );
@@ -92,6 +93,13 @@ public class RBCRemoteTarget implements TestContainer
         return install("local", probe);
     }
 
+    public void uninstall( long bundleId )
+        throws TestContainerException
+    {
+        m_remoteBundleContextClient.uninstall( bundleId );
+        LOG.debug( "Uninstalled bundle " + bundleId );
+    }
+
     public TestContainer stop()
         throws TimeoutException
     {
@@ -34,6 +34,13 @@ public interface RemoteBundleContextClient {
 
     public long install( String location, InputStream stream );
 
+    /**
+     * Uninstalls a bundle that has been installed using this client.
+     *
+     * @param bundleId id of bundle as returned by install.
+     */
+    public void uninstall( long bundleId );
+
     public void cleanup();
 
     /**
@@ -37,6 +37,7 @@ import org.ops4j.io.StreamUtils;
 import org.ops4j.pax.exam.ProbeInvoker;
 import org.ops4j.pax.exam.RelativeTimeout;
 import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainerException;
 import org.ops4j.pax.exam.rbc.Constants;
 import org.ops4j.pax.exam.rbc.client.RemoteBundleContextClient;
 import org.ops4j.pax.exam.rbc.internal.RemoteBundleContext;
@@ -161,6 +162,18 @@ public class RemoteBundleContextClientImpl implements RemoteBundleContextClient
         return out.toByteArray();
     }
 
+    public void uninstall( long bundleId )
+    {
+        try {
+            m_installed.remove( bundleId );
+            getRemoteBundleContext().uninstallBundle( bundleId );
+        } catch( IOException e ) {
+            throw new TestContainerException( "Bundle " + bundleId + " cannot be uninstalled", e );
+        } catch( BundleException e ) {
+            throw new TestContainerException( "Bundle " + bundleId + " cannot be uninstalled", e );
+        }
+    }
+
     public void cleanup()
     {
         try {
@@ -98,6 +98,11 @@ public class RetryRemoteBundleContextClient implements RemoteBundleContextClient
         return m_proxy.install( location, stream );
     }
 
+    public void uninstall( long bundleId )
+    {
+        m_proxy.uninstall( bundleId );
+    }
+
     public void cleanup()
     {
         m_proxy.cleanup();
@@ -0,0 +1,32 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.ops4j.pax.exam.TestProbeProvider;
+
+/**
+ * A {@link StagedExamReactorFactory} that wants to create (or reuse) the containers itself.
+ * Instead of readily created containers, the {@link DefaultExamReactor} passes the plain configurations.
+ */
+public interface ConfigurationAwareStagedReactorFactory extends StagedExamReactorFactory
+{
+
+    StagedExamReactor createFromConfigurations( List<StagedConfiguration> configurations, List<TestProbeProvider> probes )
+        throws IOException;
+}
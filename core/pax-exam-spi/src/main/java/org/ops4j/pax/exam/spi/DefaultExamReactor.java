@@ -22,13 +22,16 @@ import static org.ops4j.pax.exam.CoreOptions.options;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.ops4j.pax.exam.ExamSystem;
 import org.ops4j.pax.exam.Option;
 import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestContainerException;
 import org.ops4j.pax.exam.TestContainerFactory;
 import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.spi.intern.StagingExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -76,8 +79,41 @@ public class DefaultExamReactor implements ExamReactor {
             LOG.debug( "No configuration given. Setting an empty one." );
             m_configurations.add( options() );
         }
-        for( Option[] config : m_configurations ) {
-            containers.addAll( Arrays.asList( m_factory.create( m_system.fork( config ) ) ) );
+        if( factory instanceof ConfigurationAwareStagedReactorFactory ) {
+            // factory takes care of creating (or reusing) containers itself
+            List<StagedConfiguration> configurations = new ArrayList<StagedConfiguration>();
+            for( Option[] config : m_configurations ) {
+                configurations.add( new StagedConfiguration( m_system, config, m_factory ) );
+            }
+            return ( (ConfigurationAwareStagedReactorFactory) factory ).createFromConfigurations( configurations, m_probes );
+        }
+        // containers of all configurations are created concurrently if configured so (see StagingExecutor)
+        final List<ExamSystem> forks = Collections.synchronizedList( new ArrayList<ExamSystem>() );
+        List<StagingExecutor.Task<TestContainer[]>> tasks = new ArrayList<StagingExecutor.Task<TestContainer[]>>();
+        int index = 0;
+        for( final Option[] config : m_configurations ) {
+            tasks.add( new StagingExecutor.Task<TestContainer[]>( "configuration " + ( index++ ) ) {
+                public TestContainer[] call()
+                    throws Exception
+                {
+                    ExamSystem fork = m_system.fork( config );
+                    forks.add( fork );
+                    return m_factory.create( fork );
+                }
+            } );
+        }
+        List<TestContainer[]> results;
+        try {
+            results = StagingExecutor.create().execute( tasks );
+        } catch( TestContainerException e ) {
+            // containers are not started yet, but the systems of the healthy configurations hold temporary folders.
+            for( ExamSystem fork : forks ) {
+                fork.clear();
+            }
+            throw e;
+        }
+        for( TestContainer[] created : results ) {
+            containers.addAll( Arrays.asList( created ) );
         }
 
         return factory.create( containers, m_probes );
@@ -20,24 +20,32 @@ package org.ops4j.pax.exam.spi;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.Stack;
 import java.util.UUID;
 import com.google.common.io.Files;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.ops4j.io.FileUtils;
+import org.ops4j.pax.exam.ConfigurationManager;
+import org.ops4j.pax.exam.Constants;
 import org.ops4j.pax.exam.ExamSystem;
 import org.ops4j.pax.exam.Info;
 import org.ops4j.pax.exam.Option;
 import org.ops4j.pax.exam.RelativeTimeout;
 import org.ops4j.pax.exam.TestProbeBuilder;
 import org.ops4j.pax.exam.options.FrameworkOption;
+import org.ops4j.pax.exam.options.ProvisionOption;
 import org.ops4j.pax.exam.options.TimeoutOption;
 import org.ops4j.pax.exam.options.extra.CleanCachesOption;
 import org.ops4j.pax.exam.options.extra.WorkingDirectoryOption;
+import org.ops4j.pax.exam.spi.intern.ByteBufferStore;
+import org.ops4j.pax.exam.spi.intern.OptionIndex;
+import org.ops4j.pax.exam.spi.intern.ProbeCache;
 import org.ops4j.pax.exam.spi.intern.TestProbeBuilderImpl;
+import org.ops4j.pax.exam.spi.intern.TrashCan;
 import org.ops4j.store.Store;
 import org.ops4j.store.intern.TemporaryStore;
 
@@ -53,14 +61,16 @@ public class DefaultExamSystem implements ExamSystem {
 
     private static final Logger LOG = LoggerFactory.getLogger( DefaultExamSystem.class );
 
-    final private Store<InputStream> m_store;
+    private static final int DEFAULT_STORE_CAPACITY = 64;
+
     final private File m_configDirectory;
-    final private Option[] m_combinedOptions;
+    final private OptionIndex m_index;
     final private Stack<ExamSystem> m_subsystems;
     final private RelativeTimeout m_timeout;
-    final private Set<Class> m_requestedOptionTypes = new HashSet<Class>();
+    final private Set<Class> m_requestedOptionTypes = Collections.synchronizedSet( new HashSet<Class>() );
     final private CleanCachesOption m_clean;
-    final private File m_cache;
+    private Store<InputStream> m_store;
+    private File m_cache;
 
     /**
      * Creates a fresh ExamSystem. Your options will be combined with internal defaults.
@@ -77,6 +87,8 @@ public class DefaultExamSystem implements ExamSystem {
         throws IOException
     {
         LOG.info( "Pax Exam System (Version: " + Info.getPaxExamVersion() + ") created." );
+        // trash of crashed runs
+        TrashCan.getDefault().sweep( new File( System.getProperty( "java.io.tmpdir" ), TrashCan.TRASH_FOLDER ) );
         return new DefaultExamSystem( options );
 
     }
@@ -84,11 +96,14 @@ public class DefaultExamSystem implements ExamSystem {
     /**
      * Create a new system based on *this*.
      * The forked System remembers the forked instances in order to clear resources up (if desired).
+     *
+     * The fork shares the options (and their index) of this system and only adds its own. Its temp folder is created
+     * when it is asked for.
      */
     public ExamSystem fork( Option[] options )
         throws IOException
     {
-        ExamSystem sys = new DefaultExamSystem( combine( m_combinedOptions, options ) );
+        ExamSystem sys = new DefaultExamSystem( this, options );
         m_subsystems.add( sys );
         return sys;
     }
@@ -105,20 +120,40 @@ public class DefaultExamSystem implements ExamSystem {
     private DefaultExamSystem( Option[] options )
         throws IOException
     {
-        m_subsystems = new Stack<ExamSystem>();
-        m_combinedOptions = expand( options );
-        m_configDirectory = new File( System.getProperty( "user.home" ) + "/.pax/exam/" );
+        this( new OptionIndex( normalize( options ) ), new File( System.getProperty( "user.home" ) + "/.pax/exam/" ) );
         m_configDirectory.mkdirs();
+    }
 
-        WorkingDirectoryOption work = getSingleOption( WorkingDirectoryOption.class );
-        if( work != null ) {
-            m_cache = createTemp( new File( work.getWorkingDirectory() ) );
-        }
-        else {
-            m_cache = createTemp( null );
+    /**
+     * Creates a fork of a system.
+     *
+     * @param parent  system to fork
+     * @param options options to be added to those of parent.
+     */
+    private DefaultExamSystem( DefaultExamSystem parent, Option[] options )
+    {
+        this( overlay( parent.m_index, options ), parent.m_configDirectory );
+    }
+
+    /**
+     * Options are normalized (see {@link org.ops4j.pax.exam.OptionUtils#normalize(Option[])}), so containers provision
+     * every bundle once. Added bundles may replace bundles of the parent, in which case the options are not shared.
+     */
+    private static OptionIndex overlay( OptionIndex parent, Option[] options )
+    {
+        Option[] expanded = expand( options );
+        if( filter( ProvisionOption.class, expanded ).length > 0 ) {
+            List<Option> all = parent.getOptions();
+            return new OptionIndex( normalize( combine( all.toArray( new Option[all.size()] ), expanded ) ) );
         }
+        return new OptionIndex( parent, expanded );
+    }
 
-        m_store = new TemporaryStore( m_cache, false );
+    private DefaultExamSystem( OptionIndex index, File configDirectory )
+    {
+        m_subsystems = new Stack<ExamSystem>();
+        m_index = index;
+        m_configDirectory = configDirectory;
 
         TimeoutOption timeoutOption = getSingleOption( TimeoutOption.class );
         if( timeoutOption != null ) {
@@ -137,8 +172,7 @@ public class DefaultExamSystem implements ExamSystem {
      *
      * @param workingDirectory
      */
-    private synchronized File createTemp( File workingDirectory )
-        throws IOException
+    private static File createTemp( File workingDirectory )
     {
         if( workingDirectory == null ) {
             return Files.createTempDir();
@@ -158,20 +192,13 @@ public class DefaultExamSystem implements ExamSystem {
     public <T extends Option> T getSingleOption( final Class<T> optionType )
     {
         m_requestedOptionTypes.add( optionType );
-        T[] filter = filter( optionType, m_combinedOptions );
-
-        if( filter.length > 0 ) {
-            return filter[ filter.length-1 ];
-        }
-        else {
-            return null;
-        }
+        return m_index.getLast( optionType );
     }
 
     public <T extends Option> T[] getOptions( final Class<T> optionType )
     {
         m_requestedOptionTypes.add( optionType );
-        return filter( optionType, m_combinedOptions );
+        return m_index.get( optionType );
     }
 
     /**
@@ -187,11 +214,28 @@ public class DefaultExamSystem implements ExamSystem {
      * @return the basic directory that Exam should use for all IO write
      *         activities.
      */
-    public File getTempFolder()
+    public synchronized File getTempFolder()
     {
+        if( m_cache == null ) {
+            WorkingDirectoryOption work = getSingleOption( WorkingDirectoryOption.class );
+            if( work != null ) {
+                m_cache = createTemp( new File( work.getWorkingDirectory() ) );
+            }
+            else {
+                m_cache = createTemp( null );
+            }
+        }
         return m_cache;
     }
 
+    private synchronized Store<InputStream> getStore()
+    {
+        if( m_store == null ) {
+            m_store = createStore( getTempFolder() );
+        }
+        return m_store;
+    }
+
     /**
      * @return a relative indication of how to deal with timeouts.
      */
@@ -202,6 +246,7 @@ public class DefaultExamSystem implements ExamSystem {
 
     /**
      * Clears up resources taken by system (like temporary files).
+     * Temporary folders are moved to trash and deleted in background (see {@link TrashCan}).
      */
     public void clear()
     {
@@ -212,7 +257,13 @@ public class DefaultExamSystem implements ExamSystem {
                 for( ExamSystem sys : m_subsystems ) {
                     sys.clear();
                 }
-                FileUtils.delete( m_cache.getCanonicalFile() );
+                File cache;
+                synchronized( this ) {
+                    cache = m_cache;
+                }
+                if( cache != null ) {
+                    TrashCan.getDefault().delete( cache.getCanonicalFile() );
+                }
 
             }
         } catch( IOException e ) {
@@ -231,29 +282,15 @@ public class DefaultExamSystem implements ExamSystem {
 
     private Set<String> findOptionTypes()
     {
+        Set<Class> requested;
+        synchronized( m_requestedOptionTypes ) {
+            requested = new HashSet<Class>( m_requestedOptionTypes );
+        }
+        // false friend
+        requested.add( FrameworkOption.class );
         Set<String> missing = new HashSet<String>();
-        for( Option option : m_combinedOptions ) {
-            boolean found = false;
-            for( Class<?> c : m_requestedOptionTypes ) {
-                try {
-                    option.getClass().asSubclass( c );
-                    found = true;
-                    break;
-                } catch( Exception e ) {
-
-                }
-            }
-            if( !found ) {
-                try {
-                    option.getClass().asSubclass( FrameworkOption.class );
-                    // false friend
-                    continue;
-                } catch( Exception e ) {
-
-                }
-                missing.add( option.getClass().getCanonicalName() );
-
-            }
+        for( Option option : m_index.getUnused( requested ) ) {
+            missing.add( option.getClass().getCanonicalName() );
         }
         return missing;
     }
@@ -261,11 +298,37 @@ public class DefaultExamSystem implements ExamSystem {
     public TestProbeBuilder createProbe(  )
         throws IOException
     {
-        TestProbeBuilderImpl testProbeBuilder = new TestProbeBuilderImpl( m_store );
+        TestProbeBuilderImpl testProbeBuilder = new TestProbeBuilderImpl(
+            getStore(),
+            createProbeCache(),
+            new ProbeCache( new File( m_configDirectory, "module-probes" ) )
+        );
         testProbeBuilder.setHeader( "Bundle-SymbolicName","PAXEXAM-PROBE-" + createID( "created probe" ) );
         return testProbeBuilder;
     }
 
+    private ProbeCache createProbeCache()
+    {
+        if( "false".equalsIgnoreCase( new ConfigurationManager().getProperty( Constants.EXAM_PROBE_CACHE_KEY ) ) ) {
+            return null;
+        }
+        return new ProbeCache( new File( m_configDirectory, "probe-cache" ) );
+    }
+
+    private static Store<InputStream> createStore( File folder )
+    {
+        Store<InputStream> store = new TemporaryStore( folder, false );
+        if( !"memory".equalsIgnoreCase( new ConfigurationManager().getProperty( Constants.EXAM_STORE_KEY ) ) ) {
+            return store;
+        }
+        int capacity = new ConfigurationManager().getIntProperty( Constants.EXAM_STORE_CAPACITY_KEY, DEFAULT_STORE_CAPACITY );
+        if( capacity < 0 ) {
+            LOG.warn( "Ignoring negative value " + capacity + " for " + Constants.EXAM_STORE_CAPACITY_KEY + ". Using " + DEFAULT_STORE_CAPACITY + " instead." );
+            capacity = DEFAULT_STORE_CAPACITY;
+        }
+        return new ByteBufferStore( store, capacity * 1024L * 1024L );
+    }
+
     public String createID( String purposeText )
     {
         return UUID.randomUUID().toString();
@@ -273,6 +336,6 @@ public class DefaultExamSystem implements ExamSystem {
 
     public String toString()
     {
-        return "ExamSystem:options=" + m_combinedOptions.length + ";queried=" + m_requestedOptionTypes.size();
+        return "ExamSystem:options=" + m_index.size() + ";queried=" + m_requestedOptionTypes.size();
     }
 }
@@ -0,0 +1,28 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi;
+
+/**
+ * A {@link StagedExamReactor} that may be invoked from several threads at the same time.
+ * Drivers should invoke up to {@link #getParallelism()} targets concurrently.
+ */
+public interface ParallelStagedExamReactor extends StagedExamReactor {
+
+    /**
+     * @return number of targets that can usefully be invoked at the same time.
+     */
+    int getParallelism();
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi;
+
+import static org.ops4j.pax.exam.OptionUtils.combine;
+import static org.ops4j.pax.exam.OptionUtils.expand;
+
+import java.io.IOException;
+
+import org.ops4j.pax.exam.ExamSystem;
+import org.ops4j.pax.exam.Option;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestContainerFactory;
+import org.ops4j.pax.exam.spi.intern.OptionFingerprint;
+
+/**
+ * A single configuration (as given by the user) that has not been turned into containers yet.
+ * Reactor factories that care about configurations (see {@link ConfigurationAwareStagedReactorFactory}) decide
+ * themselves when and how often containers are created from it.
+ */
+public class StagedConfiguration
+{
+
+    final private ExamSystem m_system;
+    final private Option[] m_options;
+    final private TestContainerFactory m_factory;
+    private String m_fingerprint;
+    private boolean m_fingerprinted;
+
+    /**
+     * @param system  system the configuration belongs to. Containers are created in forks of it.
+     * @param options options of this configuration (not including the options of system)
+     * @param factory factory used to create the containers
+     */
+    public StagedConfiguration( ExamSystem system, Option[] options, TestContainerFactory factory )
+    {
+        m_system = system;
+        m_options = options;
+        m_factory = factory;
+    }
+
+    public ExamSystem getSystem()
+    {
+        return m_system;
+    }
+
+    /**
+     * @return options of this configuration only.
+     */
+    public Option[] getOptions()
+    {
+        return m_options;
+    }
+
+    public TestContainerFactory getFactory()
+    {
+        return m_factory;
+    }
+
+    /**
+     * @return all options (system and configuration) in their expanded form.
+     */
+    public Option[] getCombinedOptions()
+    {
+        return expand( combine( m_system.getOptions( Option.class ), m_options ) );
+    }
+
+    /**
+     * Creates fresh (not started) containers in a new fork of the system. Each call creates new containers.
+     *
+     * @param extra options to be added to this configuration for the new containers only.
+     *
+     * @return containers as created by the factory.
+     *
+     * @throws IOException if the fork cannot be created.
+     */
+    public TestContainer[] createContainers( Option... extra )
+        throws IOException
+    {
+        return m_factory.create( m_system.fork( combine( m_options, extra ) ) );
+    }
+
+    /**
+     * Two configurations with the same fingerprint lead to equal containers.
+     *
+     * @return a canonical fingerprint of all options and the container factory or null if there are options that
+     *         cannot be compared (containers of such configurations must not be shared).
+     */
+    public synchronized String getFingerprint()
+    {
+        if( !m_fingerprinted ) {
+            m_fingerprint = OptionFingerprint.compute( getCombinedOptions(), m_factory.getClass().getName() );
+            m_fingerprinted = true;
+        }
+        return m_fingerprint;
+    }
+
+    public String toString()
+    {
+        return "StagedConfiguration:options=" + m_options.length + ";factory=" + m_factory.getClass().getSimpleName();
+    }
+}
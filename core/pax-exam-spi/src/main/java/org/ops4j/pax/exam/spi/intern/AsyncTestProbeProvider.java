@@ -0,0 +1,111 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainerException;
+import org.ops4j.pax.exam.TestProbeProvider;
+
+/**
+ * Probe that is built on a thread of its own. The tests are known right away, so a reactor can be staged (and
+ * containers be started) while the probe is built. Only {@link #getStream()} waits for the build to finish.
+ */
+public class AsyncTestProbeProvider implements TestProbeProvider
+{
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    final private TestAddress[] m_tests;
+    final private FutureTask<TestProbeProvider> m_build;
+
+    private AsyncTestProbeProvider( TestAddress[] tests, Callable<TestProbeProvider> build )
+    {
+        m_tests = tests;
+        m_build = new FutureTask<TestProbeProvider>( build );
+    }
+
+    /**
+     * @param tests tests of the probe
+     * @param build builds the probe
+     *
+     * @return a probe being built in background.
+     */
+    public static AsyncTestProbeProvider start( TestAddress[] tests, Callable<TestProbeProvider> build )
+    {
+        AsyncTestProbeProvider probe = new AsyncTestProbeProvider( tests, build );
+        Thread thread = new Thread( probe.m_build, "Pax Exam Probe Builder-" + THREAD_COUNT.incrementAndGet() );
+        thread.setDaemon( true );
+        thread.start();
+        return probe;
+    }
+
+    public TestAddress[] getTests()
+    {
+        return m_tests;
+    }
+
+    public InputStream getStream()
+        throws IOException
+    {
+        return get().getStream();
+    }
+
+    /**
+     * Waits for the build to finish.
+     *
+     * @return the built probe.
+     *
+     * @throws IOException if the probe could not be read while building
+     */
+    public TestProbeProvider get()
+        throws IOException
+    {
+        try {
+            return m_build.get();
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new TestContainerException( "Interrupted while waiting for probe.", e );
+        } catch( ExecutionException e ) {
+            Throwable cause = e.getCause();
+            if( cause instanceof IOException ) {
+                throw (IOException) cause;
+            }
+            if( cause instanceof RuntimeException ) {
+                throw (RuntimeException) cause;
+            }
+            throw new TestContainerException( "Building probe failed.", cause );
+        }
+    }
+
+    public String toString()
+    {
+        if( !m_build.isDone() ) {
+            return "[Probe: building]";
+        }
+        try {
+            return get().toString();
+        } catch( Exception e ) {
+            return "[Probe: failed (" + e + ")]";
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.ops4j.store.Handle;
+import org.ops4j.store.Store;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps stored content in direct (off-heap) buffers. Loading hands out a read-only view of the buffer, so content
+ * loaded several times (like a probe installed in several containers) is neither copied nor read from disk again.
+ *
+ * Content that does not fit into the remaining capacity goes to the spill store. Content is also written to the spill
+ * store when its location is asked for, because locations need to be real urls.
+ */
+public class ByteBufferStore implements Store<InputStream> {
+
+    private static Logger LOG = LoggerFactory.getLogger( ByteBufferStore.class );
+
+    final private Store<InputStream> m_spill;
+    final private long m_capacity;
+    final private Map<String, ByteBuffer> m_buffers;
+    final private Map<String, Handle> m_spilled;
+    private long m_used;
+
+    /**
+     * @param spill    store for content not kept in memory
+     * @param capacity number of bytes kept in memory at most
+     */
+    public ByteBufferStore( Store<InputStream> spill, long capacity )
+    {
+        m_spill = spill;
+        m_capacity = capacity;
+        m_buffers = new HashMap<String, ByteBuffer>();
+        m_spilled = new HashMap<String, Handle>();
+    }
+
+    public Handle store( InputStream in )
+        throws IOException
+    {
+        MessageDigest digest = createDigest();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        long limit = getRemaining();
+        int read;
+        while( ( read = in.read( buffer ) ) != -1 ) {
+            digest.update( buffer, 0, read );
+            bytes.write( buffer, 0, read );
+            if( bytes.size() > limit ) {
+                LOG.debug( "Content exceeds remaining capacity of " + limit + " bytes, spilling." );
+                return spill( new SequenceInputStream( new ByteArrayInputStream( bytes.toByteArray() ), in ) );
+            }
+        }
+        String id = hex( digest.digest() );
+        synchronized( this ) {
+            if( !m_buffers.containsKey( id ) ) {
+                if( m_used + bytes.size() > m_capacity ) {
+                    return spill( new ByteArrayInputStream( bytes.toByteArray() ) );
+                }
+                ByteBuffer direct = ByteBuffer.allocateDirect( bytes.size() );
+                direct.put( bytes.toByteArray() );
+                direct.flip();
+                m_buffers.put( id, direct.asReadOnlyBuffer() );
+                m_used += bytes.size();
+            }
+        }
+        return new MemoryHandle( id );
+    }
+
+    public InputStream load( Handle handle )
+        throws IOException
+    {
+        if( handle instanceof MemoryHandle ) {
+            ByteBuffer buffer;
+            synchronized( this ) {
+                buffer = m_buffers.get( handle.getIdentification() );
+            }
+            if( buffer == null ) {
+                throw new IOException( "Unknown handle " + handle.getIdentification() );
+            }
+            return new ByteBufferInputStream( buffer.duplicate() );
+        }
+        return m_spill.load( handle );
+    }
+
+    public URI getLocation( Handle handle )
+        throws IOException
+    {
+        if( handle instanceof MemoryHandle ) {
+            Handle spilled;
+            synchronized( this ) {
+                spilled = m_spilled.get( handle.getIdentification() );
+            }
+            if( spilled == null ) {
+                spilled = m_spill.store( load( handle ) );
+                synchronized( this ) {
+                    m_spilled.put( handle.getIdentification(), spilled );
+                }
+            }
+            return m_spill.getLocation( spilled );
+        }
+        return m_spill.getLocation( handle );
+    }
+
+    /**
+     * @return number of bytes kept in memory.
+     */
+    public synchronized long getUsed()
+    {
+        return m_used;
+    }
+
+    private synchronized long getRemaining()
+    {
+        return m_capacity - m_used;
+    }
+
+    private Handle spill( InputStream in )
+        throws IOException
+    {
+        return m_spill.store( in );
+    }
+
+    private static MessageDigest createDigest()
+    {
+        try {
+            return MessageDigest.getInstance( "SHA-1" );
+        } catch( NoSuchAlgorithmException e ) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static String hex( byte[] hash )
+    {
+        StringBuilder sb = new StringBuilder();
+        for( byte b : hash ) {
+            sb.append( Integer.toHexString( ( b & 0xff ) | 0x100 ).substring( 1 ) );
+        }
+        return sb.toString();
+    }
+
+    public String toString()
+    {
+        return "ByteBufferStore:used=" + getUsed() + ";capacity=" + m_capacity;
+    }
+
+    private static class MemoryHandle implements Handle {
+
+        final private String m_id;
+
+        MemoryHandle( String id )
+        {
+            m_id = id;
+        }
+
+        public String getIdentification()
+        {
+            return m_id;
+        }
+
+        public String toString()
+        {
+            return "memory:" + m_id;
+        }
+    }
+
+    /**
+     * Reads a (private) view of a buffer.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        final private ByteBuffer m_buffer;
+
+        ByteBufferInputStream( ByteBuffer buffer )
+        {
+            m_buffer = buffer;
+        }
+
+        public int read()
+        {
+            return m_buffer.hasRemaining() ? m_buffer.get() & 0xff : -1;
+        }
+
+        public int read( byte[] b, int off, int len )
+        {
+            if( len == 0 ) {
+                return 0;
+            }
+            if( !m_buffer.hasRemaining() ) {
+                return -1;
+            }
+            int n = Math.min( len, m_buffer.remaining() );
+            m_buffer.get( b, off, n );
+            return n;
+        }
+
+        public long skip( long n )
+        {
+            int skipped = (int) Math.max( 0, Math.min( n, m_buffer.remaining() ) );
+            m_buffer.position( m_buffer.position() + skipped );
+            return skipped;
+        }
+
+        public int available()
+        {
+            return m_buffer.remaining();
+        }
+    }
+}
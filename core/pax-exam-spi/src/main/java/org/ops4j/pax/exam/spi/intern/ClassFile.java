@@ -0,0 +1,323 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The class references of a class file, read without loading the class.
+ *
+ * Besides the constant pool the members and their annotations are read, so references that only appear in annotations
+ * (annotation types, class and enum values) can be told apart from the ones the code needs.
+ */
+class ClassFile {
+
+    private static final Set<String> ANNOTATION_ATTRIBUTES = new HashSet<String>();
+
+    static {
+        ANNOTATION_ATTRIBUTES.add( "RuntimeVisibleAnnotations" );
+        ANNOTATION_ATTRIBUTES.add( "RuntimeInvisibleAnnotations" );
+        ANNOTATION_ATTRIBUTES.add( "RuntimeVisibleParameterAnnotations" );
+        ANNOTATION_ATTRIBUTES.add( "RuntimeInvisibleParameterAnnotations" );
+        ANNOTATION_ATTRIBUTES.add( "AnnotationDefault" );
+    }
+
+    final private String[] m_utf8;
+    final private int[] m_classes;
+    final private int m_classCount;
+    final private int[] m_strings;
+    final private int m_stringCount;
+    // utf8 entries used by annotations, and the ones also used as descriptors of members or member references
+    final private Set<Integer> m_annotations = new HashSet<Integer>();
+    final private Set<Integer> m_descriptors = new HashSet<Integer>();
+
+    /**
+     * @param in class file, read completely
+     *
+     * @throws IOException if the stream cannot be read or is not a class file
+     */
+    ClassFile( DataInputStream in )
+        throws IOException
+    {
+        if( in.readInt() != 0xCAFEBABE ) {
+            throw new IOException( "Not a class file." );
+        }
+        in.readUnsignedShort(); // minor
+        in.readUnsignedShort(); // major
+        int count = in.readUnsignedShort();
+        m_utf8 = new String[count];
+        m_classes = new int[count];
+        m_strings = new int[count];
+        int classCount = 0;
+        int stringCount = 0;
+        for( int i = 1; i < count; i++ ) {
+            int tag = in.readUnsignedByte();
+            switch( tag ) {
+                case 1: // Utf8
+                    m_utf8[ i ] = in.readUTF();
+                    break;
+                case 7: // Class
+                    m_classes[ classCount++ ] = in.readUnsignedShort();
+                    break;
+                case 8: // String
+                    m_strings[ stringCount++ ] = in.readUnsignedShort();
+                    break;
+                case 12: // NameAndType
+                    in.readUnsignedShort();
+                    m_descriptors.add( in.readUnsignedShort() );
+                    break;
+                case 16: // MethodType
+                    m_descriptors.add( in.readUnsignedShort() );
+                    break;
+                case 19: // Module
+                case 20: // Package
+                    in.readUnsignedShort();
+                    break;
+                case 15: // MethodHandle
+                    in.readUnsignedByte();
+                    in.readUnsignedShort();
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.readInt();
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.readLong();
+                    i++;
+                    break;
+                default:
+                    throw new IOException( "Unknown constant pool tag " + tag + " at index " + i );
+            }
+        }
+        m_classCount = classCount;
+        m_stringCount = stringCount;
+
+        in.readUnsignedShort(); // access
+        in.readUnsignedShort(); // this
+        in.readUnsignedShort(); // super
+        skip( in, in.readUnsignedShort() * 2 ); // interfaces
+        readMembers( in ); // fields
+        readMembers( in ); // methods
+        readAttributes( in );
+    }
+
+    /**
+     * @param strings also take string constants that look like class names
+     *
+     * @return internal names (slash separated) of all classes the class file refers to.
+     */
+    Set<String> getReferencedClasses( boolean strings )
+    {
+        Set<String> result = new HashSet<String>();
+        for( int i = 0; i < m_classCount; i++ ) {
+            addClass( result, m_utf8[ m_classes[ i ] ] );
+        }
+        // descriptors and signatures of fields, methods and annotations (but not the text of string constants).
+        boolean[] text = text();
+        for( int i = 1; i < m_utf8.length; i++ ) {
+            if( m_utf8[ i ] != null && !text[ i ] && m_utf8[ i ].indexOf( ';' ) > 0 ) {
+                addDescriptor( result, m_utf8[ i ] );
+            }
+        }
+        // class names used for reflection.
+        for( int i = 0; strings && i < m_stringCount; i++ ) {
+            String value = m_utf8[ m_strings[ i ] ];
+            if( isClassName( value ) ) {
+                result.add( value.replace( '.', '/' ) );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return internal names of the classes that are referenced by annotations only.
+     */
+    Set<String> getAnnotationOnlyClasses()
+    {
+        Set<String> annotations = new HashSet<String>();
+        Set<String> others = new HashSet<String>();
+        for( int i = 0; i < m_classCount; i++ ) {
+            addClass( others, m_utf8[ m_classes[ i ] ] );
+        }
+        boolean[] text = text();
+        for( int i = 1; i < m_utf8.length; i++ ) {
+            if( m_utf8[ i ] == null || text[ i ] || m_utf8[ i ].indexOf( ';' ) < 0 ) {
+                continue;
+            }
+            if( m_annotations.contains( i ) ) {
+                addDescriptor( annotations, m_utf8[ i ] );
+            }
+            if( !m_annotations.contains( i ) || m_descriptors.contains( i ) ) {
+                addDescriptor( others, m_utf8[ i ] );
+            }
+        }
+        annotations.removeAll( others );
+        return annotations;
+    }
+
+    private boolean[] text()
+    {
+        boolean[] text = new boolean[m_utf8.length];
+        for( int i = 0; i < m_stringCount; i++ ) {
+            text[ m_strings[ i ] ] = true;
+        }
+        return text;
+    }
+
+    private void readMembers( DataInputStream in )
+        throws IOException
+    {
+        int count = in.readUnsignedShort();
+        for( int i = 0; i < count; i++ ) {
+            in.readUnsignedShort(); // access
+            in.readUnsignedShort(); // name
+            m_descriptors.add( in.readUnsignedShort() );
+            readAttributes( in );
+        }
+    }
+
+    private void readAttributes( DataInputStream in )
+        throws IOException
+    {
+        int count = in.readUnsignedShort();
+        for( int i = 0; i < count; i++ ) {
+            String name = m_utf8[ in.readUnsignedShort() ];
+            int length = in.readInt();
+            if( !ANNOTATION_ATTRIBUTES.contains( name ) ) {
+                skip( in, length );
+            }
+            else if( name.endsWith( "ParameterAnnotations" ) ) {
+                int parameters = in.readUnsignedByte();
+                for( int p = 0; p < parameters; p++ ) {
+                    readAnnotations( in );
+                }
+            }
+            else if( name.equals( "AnnotationDefault" ) ) {
+                readElementValue( in );
+            }
+            else {
+                readAnnotations( in );
+            }
+        }
+    }
+
+    private void readAnnotations( DataInputStream in )
+        throws IOException
+    {
+        int count = in.readUnsignedShort();
+        for( int i = 0; i < count; i++ ) {
+            readAnnotation( in );
+        }
+    }
+
+    private void readAnnotation( DataInputStream in )
+        throws IOException
+    {
+        m_annotations.add( in.readUnsignedShort() ); // type
+        int pairs = in.readUnsignedShort();
+        for( int i = 0; i < pairs; i++ ) {
+            in.readUnsignedShort(); // name
+            readElementValue( in );
+        }
+    }
+
+    private void readElementValue( DataInputStream in )
+        throws IOException
+    {
+        int tag = in.readUnsignedByte();
+        switch( tag ) {
+            case 'e':
+                m_annotations.add( in.readUnsignedShort() ); // type
+                in.readUnsignedShort(); // constant
+                break;
+            case 'c':
+                m_annotations.add( in.readUnsignedShort() );
+                break;
+            case '@':
+                readAnnotation( in );
+                break;
+            case '[':
+                int count = in.readUnsignedShort();
+                for( int i = 0; i < count; i++ ) {
+                    readElementValue( in );
+                }
+                break;
+            default:
+                in.readUnsignedShort(); // constant
+        }
+    }
+
+    private static void skip( DataInputStream in, int length )
+        throws IOException
+    {
+        int left = length;
+        while( left > 0 ) {
+            int skipped = in.skipBytes( left );
+            if( skipped <= 0 ) {
+                throw new IOException( "Unexpected end of class file." );
+            }
+            left -= skipped;
+        }
+    }
+
+    private static void addClass( Set<String> result, String name )
+    {
+        if( name.startsWith( "[" ) ) {
+            addDescriptor( result, name );
+        }
+        else {
+            result.add( name );
+        }
+    }
+
+    private static void addDescriptor( Set<String> result, String descriptor )
+    {
+        int idx = 0;
+        while( ( idx = descriptor.indexOf( 'L', idx ) ) >= 0 ) {
+            int end = idx + 1;
+            while( end < descriptor.length() && ";<".indexOf( descriptor.charAt( end ) ) < 0 ) {
+                end++;
+            }
+            if( end < descriptor.length() && end > idx + 1 ) {
+                result.add( descriptor.substring( idx + 1, end ) );
+            }
+            idx = end;
+        }
+    }
+
+    private static boolean isClassName( String value )
+    {
+        if( value.length() == 0 || value.indexOf( '.' ) < 0 || !Character.isJavaIdentifierStart( value.charAt( 0 ) ) ) {
+            return false;
+        }
+        for( int i = 1; i < value.length(); i++ ) {
+            char c = value.charAt( i );
+            if( c != '.' && !Character.isJavaIdentifierPart( c ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
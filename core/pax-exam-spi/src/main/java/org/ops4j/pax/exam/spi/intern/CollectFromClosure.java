@@ -0,0 +1,132 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.ops4j.pax.exam.spi.ContentCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the anchor classes and all classes of the same base folder reachable from them through the constant pool,
+ * plus all resources (non class files) of the base folder.
+ *
+ * Classes outside of the base folder are left to the imports of the probe. Classes only loaded by reflection are found
+ * as long as their name appears as string constant.
+ */
+public class CollectFromClosure implements ContentCollector {
+
+    private static Logger LOG = LoggerFactory.getLogger( CollectFromClosure.class );
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    final private File m_base;
+    final private List<Class> m_anchors;
+    final private ContentCollector m_resources;
+
+    public CollectFromClosure( File base, List<Class> anchors )
+    {
+        this( base, anchors, new CollectFromDirectory( base, new String[0], new String[]{ "**/*" + CLASS_SUFFIX } ) );
+    }
+
+    /**
+     * @param base      classes folder
+     * @param anchors   classes to start from
+     * @param resources collector of the resources to add
+     */
+    public CollectFromClosure( File base, List<Class> anchors, ContentCollector resources )
+    {
+        m_base = base;
+        m_anchors = anchors;
+        m_resources = resources;
+    }
+
+    public void collect( Map<String, URL> map )
+        throws IOException
+    {
+        Set<String> visited = new HashSet<String>();
+        LinkedList<String> queue = new LinkedList<String>();
+        for( Class anchor : m_anchors ) {
+            queue.add( anchor.getName().replace( '.', '/' ) );
+        }
+        int classes = 0;
+        while( !queue.isEmpty() ) {
+            String name = queue.removeFirst();
+            if( !visited.add( name ) ) {
+                continue;
+            }
+            File file = new File( m_base, name + CLASS_SUFFIX );
+            if( !file.isFile() ) {
+                continue;
+            }
+            map.put( name + CLASS_SUFFIX, file.toURI().toURL() );
+            classes++;
+            for( String referenced : getReferencedClasses( file ) ) {
+                if( !visited.contains( referenced ) ) {
+                    queue.add( referenced );
+                }
+            }
+        }
+        int size = map.size();
+        m_resources.collect( map );
+        int resources = map.size() - size;
+        LOG.debug( "Probe content: {} classes, {} resources from {}", new Object[]{ classes, resources, m_base } );
+    }
+
+    /**
+     * @param file class file
+     *
+     * @return internal names (slash separated) of all classes the class file refers to in its constant pool.
+     *
+     * @throws IOException if the file cannot be read or is not a class file
+     */
+    static Set<String> getReferencedClasses( File file )
+        throws IOException
+    {
+        DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+        try {
+            return getReferencedClasses( in, true );
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @param in      class file
+     * @param strings also take string constants that look like class names
+     *
+     * @return internal names (slash separated) of all classes the class file refers to in its constant pool.
+     *
+     * @throws IOException if the stream cannot be read or is not a class file
+     */
+    static Set<String> getReferencedClasses( DataInputStream in, boolean strings )
+        throws IOException
+    {
+        return new ClassFile( in ).getReferencedClasses( strings );
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Map;
+
+import org.ops4j.pax.exam.spi.ContentCollector;
+
+/**
+ * Collects files from a given base like {@link CollectFromBase}, but names entries by their path relative to the
+ * walk instead of canonicalizing every file, and filters them by include and exclude globs (see {@link PathFilter}).
+ *
+ * URLs are resolved against the URL of the base folder, so apart from listing only {@link File#isDirectory()} touches
+ * the file system for each entry.
+ */
+public class CollectFromDirectory implements ContentCollector {
+
+    final private File m_base;
+    final private PathFilter m_filter;
+
+    public CollectFromDirectory( File base )
+    {
+        this( base, new String[0], new String[0] );
+    }
+
+    /**
+     * @param base     folder to collect from
+     * @param includes globs of files to take, all files if empty
+     * @param excludes globs of files to leave out
+     */
+    public CollectFromDirectory( File base, String[] includes, String[] excludes )
+    {
+        m_base = base;
+        m_filter = new PathFilter( includes, excludes );
+    }
+
+    public void collect( Map<String, URL> map )
+        throws IOException
+    {
+        if( m_base != null && m_base.isDirectory() ) {
+            collect( map, m_base.getAbsoluteFile().toURI(), m_base, "" );
+        }
+    }
+
+    private void collect( Map<String, URL> map, URI base, File dir, String prefix )
+        throws IOException
+    {
+        String[] names = dir.list();
+        if( names == null ) {
+            return;
+        }
+        for( String name : names ) {
+            File f = new File( dir, name );
+            String path = prefix + name;
+            if( f.isDirectory() ) {
+                collect( map, base, f, path + "/" );
+            }
+            else if( !f.isHidden() && m_filter.accept( path ) ) {
+                map.put( path, resolve( base, path ) );
+            }
+        }
+    }
+
+    private static URL resolve( URI base, String path )
+        throws IOException
+    {
+        try {
+            // "./" keeps a colon in the first segment from being taken as scheme.
+            return base.resolve( new URI( null, null, "./" + path, null ) ).toURL();
+        } catch( URISyntaxException e ) {
+            throw new IOException( "Invalid path " + path + ": " + e.getMessage() );
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Map;
+
+import org.ops4j.pax.exam.spi.ContentCollector;
+
+/**
+ * Collects the entries of a jar (like a test-jar the tests are run from), filtered by include and exclude globs (see
+ * {@link PathFilter}). The manifest and signature files of the jar are left out.
+ *
+ * Entries are put as "jar:" urls, so {@link ProbeJarWriter} can copy them without inflating them.
+ */
+public class CollectFromJar implements ContentCollector {
+
+    private static final PathFilter JAR_METADATA = new PathFilter(
+        new String[0],
+        new String[]{ "META-INF/MANIFEST.MF", "META-INF/*.SF", "META-INF/*.RSA", "META-INF/*.DSA" }
+    );
+
+    final private File m_jar;
+    final private PathFilter m_filter;
+
+    public CollectFromJar( File jar )
+    {
+        this( jar, new String[0], new String[0] );
+    }
+
+    /**
+     * @param jar      jar to collect from
+     * @param includes globs of entries to take, all entries if empty
+     * @param excludes globs of entries to leave out
+     */
+    public CollectFromJar( File jar, String[] includes, String[] excludes )
+    {
+        m_jar = jar;
+        m_filter = new PathFilter( includes, excludes );
+    }
+
+    public void collect( Map<String, URL> map )
+        throws IOException
+    {
+        String base = "jar:" + m_jar.toURI().toURL().toExternalForm() + "!/";
+        RawZipFile zip = new RawZipFile( m_jar );
+        try {
+            for( RawZipFile.Entry entry : zip.getEntries() ) {
+                String name = entry.getName();
+                if( !entry.isDirectory() && JAR_METADATA.accept( name ) && m_filter.accept( name ) ) {
+                    map.put( name, new URL( base + name ) );
+                }
+            }
+        } finally {
+            zip.close();
+        }
+    }
+
+    /**
+     * @param url url of an entry of a jar
+     *
+     * @return the jar file or null if url does not point into a local jar.
+     */
+    public static File getJarFile( URL url )
+    {
+        if( url == null || !"jar".equals( url.getProtocol() ) ) {
+            return null;
+        }
+        String path = url.getPath();
+        int idx = path.indexOf( "!/" );
+        if( idx < 0 || !path.startsWith( "file:" ) ) {
+            return null;
+        }
+        try {
+            return new File( new URL( path.substring( 0, idx ) ).toURI() );
+        } catch( URISyntaxException e ) {
+            return null;
+        } catch( IOException e ) {
+            return null;
+        }
+    }
+
+    /**
+     * @param url url of an entry of a jar
+     *
+     * @return name of the entry or null if url does not point into a jar.
+     */
+    public static String getEntryName( URL url )
+    {
+        String path = url.getPath();
+        int idx = path.indexOf( "!/" );
+        return idx < 0 ? null : path.substring( idx + 2 );
+    }
+}
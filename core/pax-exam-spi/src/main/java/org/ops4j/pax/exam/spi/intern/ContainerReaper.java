@@ -0,0 +1,194 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ops4j.pax.exam.ConfigurationManager;
+import org.ops4j.pax.exam.Constants;
+import org.ops4j.pax.exam.TestContainer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stops containers in the background so that the caller (usually a test runner tearing down a reactor) can move on.
+ *
+ * Stopping a container also clears its system (temporary folders). A shutdown hook waits for all pending stops before
+ * the JVM exits, but no longer than the deadline of the last container handed over (see
+ * {@link Constants#EXAM_REAPER_TIMEOUT_KEY}). The JVM wide reaper only stops in background if switched on with
+ * {@link Constants#EXAM_REAPER_KEY}, otherwise containers are stopped on the calling thread as before.
+ */
+public class ContainerReaper
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger( ContainerReaper.class );
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private static ContainerReaper s_instance;
+
+    final private boolean m_enabled;
+    final private long m_timeout;
+    final private Map<TestContainer, Long> m_pending = new LinkedHashMap<TestContainer, Long>();
+    private ExecutorService m_executor;
+
+    /**
+     * @param enabled stop in background. If false, containers are stopped on the calling thread.
+     * @param timeout milliseconds a container may take to stop until it is not waited for any more.
+     */
+    public ContainerReaper( boolean enabled, long timeout )
+    {
+        m_enabled = enabled;
+        m_timeout = timeout;
+    }
+
+    /**
+     * @return the JVM wide reaper, configured by {@link Constants#EXAM_REAPER_KEY} and
+     *         {@link Constants#EXAM_REAPER_TIMEOUT_KEY}.
+     */
+    public static synchronized ContainerReaper getInstance()
+    {
+        if( s_instance == null ) {
+            final ContainerReaper reaper = create( new ConfigurationManager() );
+            Runtime.getRuntime().addShutdownHook( new Thread( "Pax Exam Reaper Shutdown" ) {
+                public void run()
+                {
+                    reaper.awaitDeadline();
+                }
+            } );
+            s_instance = reaper;
+        }
+        return s_instance;
+    }
+
+    /**
+     * @param cm configuration to read {@link Constants#EXAM_REAPER_KEY} and {@link Constants#EXAM_REAPER_TIMEOUT_KEY}
+     *           from
+     *
+     * @return a reaper that stops in background only if switched on.
+     */
+    static ContainerReaper create( ConfigurationManager cm )
+    {
+        String enabled = cm.getProperty( Constants.EXAM_REAPER_KEY );
+        return new ContainerReaper(
+            enabled != null && "true".equalsIgnoreCase( enabled.trim() ),
+            cm.getIntProperty( Constants.EXAM_REAPER_TIMEOUT_KEY, 5 * 60 * 1000 )
+        );
+    }
+
+    /**
+     * Stops the container (in background if enabled). Problems are logged.
+     *
+     * @param container container to be stopped.
+     */
+    public void stop( final TestContainer container )
+    {
+        if( !m_enabled ) {
+            doStop( container );
+            return;
+        }
+        synchronized( this ) {
+            if( m_executor == null ) {
+                m_executor = Executors.newCachedThreadPool( new ReaperThreadFactory() );
+            }
+            m_pending.put( container, System.currentTimeMillis() + m_timeout );
+            m_executor.execute( new Runnable() {
+                public void run()
+                {
+                    try {
+                        doStop( container );
+                    } finally {
+                        done( container );
+                    }
+                }
+            } );
+        }
+    }
+
+    /**
+     * Waits for all pending stops.
+     *
+     * @param timeout maximum milliseconds to wait.
+     *
+     * @return true if all containers have been stopped.
+     */
+    public synchronized boolean await( long timeout )
+    {
+        long end = System.currentTimeMillis() + timeout;
+        try {
+            for( long left = timeout; !m_pending.isEmpty() && left > 0; left = end - System.currentTimeMillis() ) {
+                wait( left );
+            }
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+        return m_pending.isEmpty();
+    }
+
+    public synchronized int getPendingCount()
+    {
+        return m_pending.size();
+    }
+
+    /**
+     * Waits for all pending stops until the latest deadline has passed.
+     */
+    synchronized void awaitDeadline()
+    {
+        long latest = 0;
+        for( Long deadline : m_pending.values() ) {
+            latest = Math.max( latest, deadline );
+        }
+        if( !await( latest - System.currentTimeMillis() ) ) {
+            for( TestContainer container : m_pending.keySet() ) {
+                LOG.warn( "Container " + container + " has not been stopped within " + m_timeout + " ms." );
+            }
+        }
+    }
+
+    private synchronized void done( TestContainer container )
+    {
+        m_pending.remove( container );
+        notifyAll();
+    }
+
+    private void doStop( TestContainer container )
+    {
+        try {
+            long start = System.currentTimeMillis();
+            container.stop();
+            LOG.debug( "Stopped " + container + " in " + ( System.currentTimeMillis() - start ) + " ms." );
+        } catch( Exception e ) {
+            LOG.warn( "Problem stopping " + container, e );
+        }
+    }
+
+    private static class ReaperThreadFactory implements ThreadFactory
+    {
+
+        public Thread newThread( Runnable r )
+        {
+            Thread thread = new Thread( r, "Pax Exam Reaper-" + THREAD_COUNT.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
+}
@@ -17,9 +17,6 @@ package org.ops4j.pax.exam.spi.intern;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.jar.Attributes;
-import java.util.jar.JarInputStream;
-import java.util.jar.Manifest;
 import org.ops4j.pax.exam.TestAddress;
 import org.ops4j.pax.exam.TestProbeProvider;
 import org.ops4j.store.Handle;
@@ -33,16 +30,13 @@ public class DefaultTestProbeProvider implements TestProbeProvider
     private TestAddress[] m_tests;
     private Handle m_probe;
     private Store<InputStream> m_store;
-    private String m_formattedInfo = "";
+    private ProbeMetadata m_metadata;
 
     public DefaultTestProbeProvider( TestAddress[] tests, Store<InputStream> store, Handle probe )
     {
         m_tests = tests;
         m_store = store;
         m_probe = probe;
-
-        // Prepare text info
-        m_formattedInfo = constuctInfo();
     }
 
     public TestAddress[] getTests()
@@ -56,54 +50,28 @@ public class DefaultTestProbeProvider implements TestProbeProvider
         return m_store.load( m_probe );
     }
 
-    public String toString()
+    /**
+     * Reads the manifest of the probe on first call.
+     *
+     * @return metadata of the probe.
+     *
+     * @throws IOException if the probe cannot be read
+     */
+    public synchronized ProbeMetadata getMetadata()
+        throws IOException
     {
-        return m_formattedInfo;
+        if( m_metadata == null ) {
+            m_metadata = ProbeMetadata.read( m_tests, m_store, m_probe );
+        }
+        return m_metadata;
     }
 
-    // TODO: use some flat JSON Tree Model so we don't have to mess with formatting here.
-    private String constuctInfo()
+    public String toString()
     {
-        JarInputStream in = null;
-        String info = "";
-        try
-        {
-            info += "[Probe ID: " + m_probe.getIdentification() + "]\n";
-            info += "[Probe Location: " + m_store.getLocation( m_probe ).toASCIIString() + "]\n";
-
-            in = new JarInputStream( m_store.load( m_probe ) );
-            Manifest man = in.getManifest();
-            Attributes mainAttributes = man.getMainAttributes();
-
-            info += "[Tests: " + "\n";
-            for( TestAddress t : m_tests )
-            {
-                info += "    SIG=" + t + "\n";
-            }
-            info += "]" + "\n";
-
-            info += "[Headers: " + "\n";
-            for( Object key : mainAttributes.keySet() )
-            {
-                info += "    " + key + "=" + mainAttributes.get( key ) + "\n";
-            }
-            info += "]" + "\n";
-
-            // surround
-            info = "\n--\n" + info + "--\n";
-        } catch( IOException e )
-        {
-            e.printStackTrace();
-        } finally
-        {
-            try
-            {
-                in.close();
-            } catch( IOException e )
-            {
-                //
-            }
+        try {
+            return getMetadata().toString();
+        } catch( IOException e ) {
+            return "[Probe ID: " + m_probe.getIdentification() + " (unreadable: " + e + ")]";
         }
-        return info;
     }
 }
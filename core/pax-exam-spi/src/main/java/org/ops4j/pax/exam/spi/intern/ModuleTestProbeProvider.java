@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.store.Handle;
+import org.ops4j.store.Store;
+
+/**
+ * Probe of a test class in module scope: {@link #getStream()} is a bundle that only carries the signatures of the
+ * tests and requires the shared probe of the module, which contains the classes of all tests.
+ *
+ * The shared probe has a stable location, so installing it into a container that already has it gives back the bundle
+ * installed before (see {@link ProbeInstaller}).
+ */
+public class ModuleTestProbeProvider extends DefaultTestProbeProvider
+{
+
+    final private Handle m_probe;
+    final private File m_shared;
+
+    /**
+     * @param tests  tests of the signature bundle
+     * @param store  store of the signature bundle
+     * @param probe  handle of the signature bundle
+     * @param shared jar of the shared probe
+     */
+    public ModuleTestProbeProvider( TestAddress[] tests, Store<InputStream> store, Handle probe, File shared )
+    {
+        super( tests, store, probe );
+        m_probe = probe;
+        m_shared = shared;
+    }
+
+    /**
+     * @return location of the signature bundle, unique per build.
+     */
+    public String getLocation()
+    {
+        return "pax-exam:probe:" + m_probe.getIdentification();
+    }
+
+    /**
+     * @return location of the shared probe, the same for all test classes of a module.
+     */
+    public String getSharedLocation()
+    {
+        return m_shared.toURI().toASCIIString();
+    }
+
+    public InputStream getSharedStream()
+        throws IOException
+    {
+        return new FileInputStream( m_shared );
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.ops4j.pax.exam.Option;
+import org.ops4j.pax.exam.options.extra.WorkingDirectoryOption;
+
+/**
+ * Computes a canonical fingerprint of (expanded) options.
+ *
+ * Options usually do not implement equals() or toString(), so the fingerprint is built from the option classes and
+ * the values of their public getters (recursively). Two option arrays with equal fingerprints describe equal
+ * containers.
+ *
+ * Only the options of Pax Exam itself (package {@code org.ops4j.pax.exam.options}) are known to keep all their state
+ * in side effect free getters. Options of any other type cannot be compared, so there is no fingerprint for them.
+ *
+ * Values that are generated anew for each configuration do not count: bundles from local files (like the temp files
+ * of streamBundle) are described by their content and working directories are left out.
+ */
+public class OptionFingerprint
+{
+
+    private static final int MAX_DEPTH = 8;
+
+    private static final String KNOWN_PACKAGE = "org.ops4j.pax.exam.options.";
+
+    private OptionFingerprint()
+    {
+    }
+
+    /**
+     * @param options options to be fingerprinted. Order matters.
+     * @param context additional values that distinguish otherwise equal options (like the container factory)
+     *
+     * @return SHA-1 (hex) of the canonical description or null if there are options of unknown types.
+     */
+    public static String compute( Option[] options, Object... context )
+    {
+        StringBuilder sb = new StringBuilder();
+        try {
+            for( Object c : context ) {
+                describe( sb, c, new IdentityHashMap<Object, Object>(), 0 );
+                sb.append( '\n' );
+            }
+            for( Option option : options ) {
+                if( option instanceof WorkingDirectoryOption ) {
+                    // where the container keeps its files does not change what it runs.
+                    continue;
+                }
+                describe( sb, option, new IdentityHashMap<Object, Object>(), 0 );
+                sb.append( '\n' );
+            }
+        } catch( UnknownTypeException e ) {
+            return null;
+        }
+        return hex( sha1().digest( utf8( sb.toString() ) ) );
+    }
+
+    /**
+     * @param option option to be described.
+     *
+     * @return the canonical (human readable) description used to compute the fingerprint or null if the option (or
+     *         one it contains) is of an unknown type.
+     */
+    public static String describe( Option option )
+    {
+        StringBuilder sb = new StringBuilder();
+        try {
+            describe( sb, option, new IdentityHashMap<Object, Object>(), 0 );
+        } catch( UnknownTypeException e ) {
+            return null;
+        }
+        return sb.toString();
+    }
+
+    private static void describe( StringBuilder sb, Object value, Map<Object, Object> visited, int depth )
+        throws UnknownTypeException
+    {
+        if( value == null ) {
+            sb.append( "null" );
+        }
+        else if( isSimple( value ) ) {
+            sb.append( value );
+        }
+        else if( value instanceof Class ) {
+            sb.append( ( (Class<?>) value ).getName() );
+        }
+        else if( visited.containsKey( value ) || depth > MAX_DEPTH ) {
+            sb.append( "<" ).append( value.getClass().getName() ).append( ">" );
+        }
+        else {
+            visited.put( value, value );
+            if( value.getClass().isArray() ) {
+                sb.append( '[' );
+                for( int i = 0; i < Array.getLength( value ); i++ ) {
+                    describe( sb, Array.get( value, i ), visited, depth + 1 );
+                    sb.append( ',' );
+                }
+                sb.append( ']' );
+            }
+            else if( value instanceof Iterable ) {
+                sb.append( '[' );
+                for( Object o : (Iterable<?>) value ) {
+                    describe( sb, o, visited, depth + 1 );
+                    sb.append( ',' );
+                }
+                sb.append( ']' );
+            }
+            else if( value instanceof Map ) {
+                // keys are sorted so that the fingerprint does not depend on hashing order.
+                Map<String, Object> sorted = new TreeMap<String, Object>();
+                for( Map.Entry<?, ?> entry : ( (Map<?, ?>) value ).entrySet() ) {
+                    sorted.put( String.valueOf( entry.getKey() ), entry.getValue() );
+                }
+                sb.append( '{' );
+                for( Map.Entry<String, Object> entry : sorted.entrySet() ) {
+                    sb.append( entry.getKey() ).append( '=' );
+                    describe( sb, entry.getValue(), visited, depth + 1 );
+                    sb.append( ',' );
+                }
+                sb.append( '}' );
+            }
+            else if( value.getClass().getName().startsWith( "java." ) ) {
+                sb.append( value );
+            }
+            else if( value.getClass().getName().startsWith( KNOWN_PACKAGE ) ) {
+                describeGetters( sb, value, visited, depth );
+            }
+            else {
+                throw new UnknownTypeException();
+            }
+            visited.remove( value );
+        }
+    }
+
+    private static void describeGetters( StringBuilder sb, Object value, Map<Object, Object> visited, int depth )
+        throws UnknownTypeException
+    {
+        sb.append( value.getClass().getName() ).append( '(' );
+        for( Method getter : getGetters( value.getClass() ) ) {
+            sb.append( getter.getName() ).append( '=' );
+            Object result;
+            try {
+                getter.setAccessible( true );
+                result = getter.invoke( value );
+            } catch( Exception e ) {
+                sb.append( "?;" );
+                continue;
+            }
+            if( "getURL".equals( getter.getName() ) && result instanceof String ) {
+                sb.append( describeUrl( (String) result ) );
+            }
+            else {
+                describe( sb, result, visited, depth + 1 );
+            }
+            sb.append( ';' );
+        }
+        sb.append( ')' );
+    }
+
+    /**
+     * Local files are described by their content, because their names (like temp files) often change between
+     * otherwise equal configurations.
+     */
+    private static String describeUrl( String url )
+    {
+        if( url == null || !url.startsWith( "file:" ) ) {
+            return url;
+        }
+        try {
+            File file = new File( new URI( url ) );
+            if( file.isFile() ) {
+                return "file-sha1:" + digest( file );
+            }
+        } catch( URISyntaxException e ) {
+            // not a hierarchical url, keep it as is
+        } catch( IllegalArgumentException e ) {
+            // not a hierarchical url, keep it as is
+        } catch( IOException e ) {
+            // unreadable, keep it as is
+        }
+        return url;
+    }
+
+    /**
+     * @return public getters (get*, is* and should* without parameters) sorted by name.
+     */
+    private static List<Method> getGetters( Class<?> c )
+    {
+        List<Method> getters = new ArrayList<Method>();
+        for( Method method : c.getMethods() ) {
+            String name = method.getName();
+            if( method.getDeclaringClass() != Object.class
+                && !Modifier.isStatic( method.getModifiers() )
+                && method.getParameterTypes().length == 0
+                && method.getReturnType() != Void.TYPE
+                && ( name.startsWith( "get" ) || name.startsWith( "is" ) || name.startsWith( "should" ) ) ) {
+                getters.add( method );
+            }
+        }
+        Collections.sort( getters, new Comparator<Method>() {
+            public int compare( Method m1, Method m2 )
+            {
+                return m1.getName().compareTo( m2.getName() );
+            }
+        } );
+        return getters;
+    }
+
+    private static boolean isSimple( Object value )
+    {
+        return value instanceof String || value instanceof Number || value instanceof Boolean
+               || value instanceof Character || value instanceof Enum || value instanceof File
+               || value instanceof URL || value instanceof URI;
+    }
+
+    private static String digest( File file )
+        throws IOException
+    {
+        MessageDigest digest = sha1();
+        InputStream in = new FileInputStream( file );
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while( ( read = in.read( buffer ) ) != -1 ) {
+                digest.update( buffer, 0, read );
+            }
+        } finally {
+            in.close();
+        }
+        return hex( digest.digest() );
+    }
+
+    private static MessageDigest sha1()
+    {
+        try {
+            return MessageDigest.getInstance( "SHA-1" );
+        } catch( NoSuchAlgorithmException e ) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static byte[] utf8( String text )
+    {
+        try {
+            return text.getBytes( "UTF-8" );
+        } catch( UnsupportedEncodingException e ) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static String hex( byte[] hash )
+    {
+        StringBuilder sb = new StringBuilder();
+        for( byte b : hash ) {
+            sb.append( Integer.toHexString( ( b & 0xff ) | 0x100 ).substring( 1 ) );
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Thrown if a value is neither simple nor of a known option type.
+     */
+    private static class UnknownTypeException extends Exception
+    {
+
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.ops4j.pax.exam.Option;
+
+import static org.ops4j.pax.exam.OptionUtils.*;
+
+/**
+ * Options by type. Every option is listed under its class, all super classes and all interfaces, so looking up the
+ * options of a type gives the same result as {@link org.ops4j.pax.exam.OptionUtils#filter(Class, Option...)} without
+ * going over all options.
+ *
+ * An index can be put on top of another one (see {@link #OptionIndex(OptionIndex, Option...)}). It then only indexes
+ * its own options and asks the other index for the rest, so deriving a system with a few more options does not copy
+ * or index the options of its parent again.
+ */
+public class OptionIndex
+{
+
+    final private OptionIndex m_parent;
+    final private Option[] m_options;
+    final private Map<Class<?>, List<Option>> m_index;
+
+    /**
+     * @param options options to index (composite options are expanded)
+     */
+    public OptionIndex( Option... options )
+    {
+        this( null, options );
+    }
+
+    /**
+     * @param parent  index of the options that come first, may be null
+     * @param options options to index on top of parent (composite options are expanded)
+     */
+    public OptionIndex( OptionIndex parent, Option... options )
+    {
+        m_parent = parent;
+        m_options = expand( options );
+        m_index = new HashMap<Class<?>, List<Option>>();
+        for( Option option : m_options ) {
+            for( Class<?> type : getTypes( option.getClass() ) ) {
+                List<Option> list = m_index.get( type );
+                if( list == null ) {
+                    list = new ArrayList<Option>();
+                    m_index.put( type, list );
+                }
+                list.add( option );
+            }
+        }
+    }
+
+    /**
+     * @param type type of options
+     *
+     * @return options of the given type in the order they were given (never null).
+     */
+    @SuppressWarnings( "unchecked" )
+    public <T extends Option> T[] get( Class<T> type )
+    {
+        List<Option> list = getList( type );
+        T[] result = (T[]) Array.newInstance( type, list.size() );
+        return list.toArray( result );
+    }
+
+    /**
+     * @param type type of options
+     *
+     * @return the last option of the given type or null if there is none.
+     */
+    public <T extends Option> T getLast( Class<T> type )
+    {
+        List<Option> list = m_index.get( type );
+        if( list != null ) {
+            return type.cast( list.get( list.size() - 1 ) );
+        }
+        return m_parent == null ? null : m_parent.getLast( type );
+    }
+
+    /**
+     * @return all options, those of the parent first.
+     */
+    public List<Option> getOptions()
+    {
+        List<Option> options = m_parent == null ? new ArrayList<Option>() : m_parent.getOptions();
+        options.addAll( Arrays.asList( m_options ) );
+        return options;
+    }
+
+    /**
+     * @return number of all options (including those of the parent).
+     */
+    public int size()
+    {
+        return m_options.length + ( m_parent == null ? 0 : m_parent.size() );
+    }
+
+    /**
+     * @param types types options were asked for
+     *
+     * @return options that are not of any of the given types, in the order they were given.
+     */
+    public List<Option> getUnused( Set<Class> types )
+    {
+        Map<Option, Boolean> used = new IdentityHashMap<Option, Boolean>();
+        for( Class<?> type : types ) {
+            for( Option option : getList( type ) ) {
+                used.put( option, Boolean.TRUE );
+            }
+        }
+        List<Option> unused = new ArrayList<Option>();
+        for( Option option : getOptions() ) {
+            if( !used.containsKey( option ) ) {
+                unused.add( option );
+            }
+        }
+        return unused;
+    }
+
+    private List<Option> getList( Class<?> type )
+    {
+        List<Option> list = m_index.get( type );
+        if( m_parent == null ) {
+            return list == null ? Collections.<Option>emptyList() : list;
+        }
+        List<Option> inherited = m_parent.getList( type );
+        if( list == null ) {
+            return inherited;
+        }
+        List<Option> all = new ArrayList<Option>( inherited );
+        all.addAll( list );
+        return all;
+    }
+
+    private static Set<Class<?>> getTypes( Class<?> clazz )
+    {
+        Set<Class<?>> types = new LinkedHashSet<Class<?>>();
+        for( Class<?> c = clazz; c != null; c = c.getSuperclass() ) {
+            addWithInterfaces( types, c );
+        }
+        return types;
+    }
+
+    private static void addWithInterfaces( Set<Class<?>> types, Class<?> type )
+    {
+        if( types.add( type ) ) {
+            for( Class<?> i : type.getInterfaces() ) {
+                addWithInterfaces( types, i );
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Include and exclude globs for entries of probes.
+ *
+ * Globs are matched against relative (slash separated) paths: {@code *} matches within a folder, {@code **} across
+ * folders and {@code ?} a single character. Without includes all paths are accepted.
+ */
+public class PathFilter {
+
+    final private Pattern[] m_includes;
+    final private Pattern[] m_excludes;
+
+    /**
+     * @param includes globs of paths to accept, all if empty
+     * @param excludes globs of paths to reject
+     */
+    public PathFilter( String[] includes, String[] excludes )
+    {
+        m_includes = compile( includes );
+        m_excludes = compile( excludes );
+    }
+
+    public boolean accept( String path )
+    {
+        if( m_includes.length > 0 && !matches( m_includes, path ) ) {
+            return false;
+        }
+        return !matches( m_excludes, path );
+    }
+
+    private static boolean matches( Pattern[] patterns, String path )
+    {
+        for( Pattern p : patterns ) {
+            if( p.matcher( path ).matches() ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Pattern[] compile( String[] globs )
+    {
+        List<Pattern> patterns = new ArrayList<Pattern>();
+        for( String glob : globs ) {
+            if( glob != null && glob.trim().length() > 0 ) {
+                patterns.add( toPattern( glob.trim() ) );
+            }
+        }
+        return patterns.toArray( new Pattern[patterns.size()] );
+    }
+
+    static Pattern toPattern( String glob )
+    {
+        StringBuilder sb = new StringBuilder();
+        for( int i = 0; i < glob.length(); i++ ) {
+            char c = glob.charAt( i );
+            if( c == '*' ) {
+                if( i + 1 < glob.length() && glob.charAt( i + 1 ) == '*' ) {
+                    i++;
+                    if( i + 1 < glob.length() && glob.charAt( i + 1 ) == '/' ) {
+                        // "**/" matches no folder as well
+                        i++;
+                        sb.append( "(?:.*/)?" );
+                    }
+                    else {
+                        sb.append( ".*" );
+                    }
+                }
+                else {
+                    sb.append( "[^/]*" );
+                }
+            }
+            else if( c == '?' ) {
+                sb.append( "[^/]" );
+            }
+            else if( "\\.[]{}()+-^$|".indexOf( c ) >= 0 ) {
+                sb.append( '\\' ).append( c );
+            }
+            else {
+                sb.append( c );
+            }
+        }
+        return Pattern.compile( sb.toString() );
+    }
+
+    /**
+     * @param list comma separated globs, may be null
+     *
+     * @return single globs
+     */
+    public static String[] split( String list )
+    {
+        return list == null ? new String[0] : list.split( "," );
+    }
+}
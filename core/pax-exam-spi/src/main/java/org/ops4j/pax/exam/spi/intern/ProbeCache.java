@@ -0,0 +1,276 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import org.osgi.framework.Constants;
+import org.ops4j.store.Handle;
+import org.ops4j.store.Store;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Keeps built probes on disk, addressed by a hash of their content and headers.
+ *
+ * Headers that change with every build (symbolic name and test identifiers) are not part of the key. A cached probe
+ * gets the headers of the current build written into its manifest before it is handed out.
+ */
+public class ProbeCache
+{
+
+    private static Logger LOG = LoggerFactory.getLogger( ProbeCache.class );
+
+    private static final String SUFFIX = ".jar";
+    private static final int DEFAULT_MAX_ENTRIES = 64;
+
+    final private File m_folder;
+    final private int m_maxEntries;
+
+    public ProbeCache( File folder )
+    {
+        this( folder, DEFAULT_MAX_ENTRIES );
+    }
+
+    /**
+     * @param folder     folder to keep the probes in
+     * @param maxEntries number of probes kept, the least recently used ones are removed first
+     */
+    public ProbeCache( File folder, int maxEntries )
+    {
+        m_folder = folder;
+        m_maxEntries = maxEntries;
+    }
+
+    /**
+     * @param header name of a manifest header
+     *
+     * @return true if the header differs between two builds of the same probe.
+     */
+    public static boolean isVolatile( String header )
+    {
+        return header.startsWith( "PaxExam-" ) || header.equals( Constants.BUNDLE_SYMBOLICNAME );
+    }
+
+    /**
+     * @param resources content of the probe
+     * @param headers   headers of the probe (volatile ones are skipped)
+     *
+     * @return key of a probe with the given content and headers.
+     *
+     * @throws IOException if a resource cannot be read
+     */
+    public static String computeKey( Map<String, URL> resources, Properties headers )
+        throws IOException
+    {
+        MessageDigest digest = createDigest();
+        byte[] buffer = new byte[8192];
+        for( Map.Entry<String, URL> entry : new TreeMap<String, URL>( resources ).entrySet() ) {
+            update( digest, entry.getKey() );
+            InputStream in = entry.getValue().openStream();
+            try {
+                int read;
+                while( ( read = in.read( buffer ) ) != -1 ) {
+                    digest.update( buffer, 0, read );
+                }
+            } finally {
+                in.close();
+            }
+        }
+        Set<String> names = new TreeSet<String>();
+        for( Object name : headers.keySet() ) {
+            names.add( name.toString() );
+        }
+        for( String name : names ) {
+            if( !isVolatile( name ) ) {
+                update( digest, name );
+                update( digest, headers.getProperty( name ) );
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for( byte b : digest.digest() ) {
+            sb.append( Integer.toHexString( ( b & 0xff ) | 0x100 ).substring( 1 ) );
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param key     as computed by {@link #computeKey(Map, Properties)}
+     * @param headers headers of the current build (only volatile ones are applied)
+     * @param store   store to put the probe into
+     *
+     * @return handle of the probe in store or null if the key is not cached.
+     *
+     * @throws IOException if the cached probe cannot be read
+     */
+    public Handle load( String key, Properties headers, Store<InputStream> store )
+        throws IOException
+    {
+        File file = new File( m_folder, key + SUFFIX );
+        if( !file.exists() ) {
+            return null;
+        }
+        file.setLastModified( System.currentTimeMillis() );
+        return store.store( new ByteArrayInputStream( relabel( file, headers ) ) );
+    }
+
+    /**
+     * @param key as computed by {@link #computeKey(Map, Properties)}
+     *
+     * @return the cached probe as it is (without relabelling) or null if the key is not cached.
+     */
+    public File getFile( String key )
+    {
+        File file = new File( m_folder, key + SUFFIX );
+        if( !file.exists() ) {
+            return null;
+        }
+        file.setLastModified( System.currentTimeMillis() );
+        return file;
+    }
+
+    /**
+     * Copies the probe to the cache.
+     *
+     * @param key   as computed by {@link #computeKey(Map, Properties)}
+     * @param probe built probe
+     *
+     * @throws IOException if the probe cannot be written
+     */
+    public void save( String key, InputStream probe )
+        throws IOException
+    {
+        m_folder.mkdirs();
+        File tmp = File.createTempFile( key, ".tmp", m_folder );
+        OutputStream out = new FileOutputStream( tmp );
+        try {
+            ByteStreams.copy( probe, out );
+        } finally {
+            out.close();
+        }
+        // rename to make it visible to other JVMs only when complete.
+        File file = new File( m_folder, key + SUFFIX );
+        if( !tmp.renameTo( file ) ) {
+            tmp.delete();
+        }
+        prune();
+    }
+
+    private void prune()
+    {
+        File[] files = m_folder.listFiles();
+        if( files == null || files.length <= m_maxEntries ) {
+            return;
+        }
+        Arrays.sort( files, new Comparator<File>()
+        {
+            public int compare( File f1, File f2 )
+            {
+                long diff = f2.lastModified() - f1.lastModified();
+                return diff > 0 ? 1 : ( diff < 0 ? -1 : 0 );
+            }
+        } );
+        for( int i = m_maxEntries; i < files.length; i++ ) {
+            LOG.debug( "Removing cached probe " + files[ i ] );
+            files[ i ].delete();
+        }
+    }
+
+    /**
+     * Replaces the volatile headers of the probe with those given. Entries are copied as they are, so their
+     * compression is kept.
+     */
+    static byte[] relabel( File probe, Properties headers )
+        throws IOException
+    {
+        JarFile jar = new JarFile( probe );
+        Manifest manifest;
+        try {
+            manifest = jar.getManifest();
+        } finally {
+            jar.close();
+        }
+        Attributes attributes = manifest.getMainAttributes();
+        for( Object name : attributes.keySet().toArray() ) {
+            if( isVolatile( name.toString() ) ) {
+                attributes.remove( name );
+            }
+        }
+        for( Object key : headers.keySet() ) {
+            String name = key.toString();
+            if( isVolatile( name ) ) {
+                attributes.putValue( name, headers.getProperty( name ) );
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ProbeJarWriter out = new ProbeJarWriter( bytes );
+        RawZipFile zip = new RawZipFile( probe );
+        try {
+            out.putManifest( manifest );
+            for( RawZipFile.Entry entry : zip.getEntries() ) {
+                if( !JarFile.MANIFEST_NAME.equalsIgnoreCase( entry.getName() ) ) {
+                    out.putRaw( zip, entry );
+                }
+            }
+            out.close();
+        } finally {
+            zip.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void update( MessageDigest digest, String text )
+        throws IOException
+    {
+        digest.update( text.getBytes( "UTF-8" ) );
+        digest.update( (byte) 0 );
+    }
+
+    private static MessageDigest createDigest()
+    {
+        try {
+            return MessageDigest.getInstance( "SHA-1" );
+        } catch( NoSuchAlgorithmException e ) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    public String toString()
+    {
+        return "ProbeCache:" + m_folder;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Computes the Import-Package header of a probe from the bytecode of its classes.
+ *
+ * Every package referenced by a class of the probe is imported, except for java.* and the packages contained in the
+ * probe. Imports of ignored packages are optional, and so are imports of packages only used in annotations (like the
+ * test runner of {@code @RunWith}), which do not need to be present for the class to load.
+ */
+public class ProbeImports {
+
+    final private Map<String, URL> m_resources;
+    final private Set<String> m_optional;
+
+    /**
+     * @param resources content of the probe
+     * @param optional  packages that do not need to be present
+     */
+    public ProbeImports( Map<String, URL> resources, Set<String> optional )
+    {
+        m_resources = resources;
+        m_optional = optional;
+    }
+
+    /**
+     * @return packages to be imported (dot separated, sorted).
+     *
+     * @throws IOException if a class of the probe cannot be read
+     */
+    public Set<String> getPackages()
+        throws IOException
+    {
+        return scan( null );
+    }
+
+    /**
+     * @return value of the Import-Package header, empty if nothing needs to be imported.
+     *
+     * @throws IOException if a class of the probe cannot be read
+     */
+    public String getHeader()
+        throws IOException
+    {
+        Set<String> required = new HashSet<String>();
+        StringBuilder sb = new StringBuilder();
+        for( String p : scan( required ) ) {
+            if( sb.length() > 0 ) {
+                sb.append( "," );
+            }
+            sb.append( p );
+            if( m_optional.contains( p ) || !required.contains( p ) ) {
+                sb.append( ";resolution:=optional" );
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param required filled with the packages referenced outside of annotations, if not null
+     *
+     * @return packages to be imported (dot separated, sorted).
+     */
+    private Set<String> scan( Set<String> required )
+        throws IOException
+    {
+        Set<String> contained = new HashSet<String>();
+        Set<String> referenced = new HashSet<String>();
+        Set<String> code = new HashSet<String>();
+        for( Map.Entry<String, URL> entry : m_resources.entrySet() ) {
+            String name = entry.getKey();
+            if( !name.endsWith( ".class" ) ) {
+                continue;
+            }
+            contained.add( getPackage( name ) );
+            DataInputStream in = new DataInputStream( new BufferedInputStream( entry.getValue().openStream() ) );
+            try {
+                ClassFile classFile = new ClassFile( in );
+                Set<String> annotationOnly = classFile.getAnnotationOnlyClasses();
+                for( String c : classFile.getReferencedClasses( false ) ) {
+                    referenced.add( getPackage( c ) );
+                    if( !annotationOnly.contains( c ) ) {
+                        code.add( getPackage( c ) );
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        }
+        Set<String> packages = new TreeSet<String>();
+        for( String p : referenced ) {
+            if( p.length() > 0 && !p.startsWith( "java/" ) && !contained.contains( p ) && isPackageName( p ) ) {
+                packages.add( p.replace( '/', '.' ) );
+                if( required != null && code.contains( p ) ) {
+                    required.add( p.replace( '/', '.' ) );
+                }
+            }
+        }
+        return packages;
+    }
+
+    private static String getPackage( String name )
+    {
+        int idx = name.lastIndexOf( '/' );
+        return idx < 0 ? "" : name.substring( 0, idx );
+    }
+
+    private static boolean isPackageName( String name )
+    {
+        for( String segment : name.split( "/" ) ) {
+            if( segment.length() == 0 || !Character.isJavaIdentifierStart( segment.charAt( 0 ) ) ) {
+                return false;
+            }
+            for( int i = 1; i < segment.length(); i++ ) {
+                if( !Character.isJavaIdentifierPart( segment.charAt( i ) ) ) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
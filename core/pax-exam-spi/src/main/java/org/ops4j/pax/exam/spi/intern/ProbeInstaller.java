@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestProbeProvider;
+
+/**
+ * Installs probes into containers. All reactors go through here, so probes in module scope get their shared probe
+ * installed first, but only once per container (containers may be reused for several test classes).
+ */
+public class ProbeInstaller
+{
+
+    // shared probe locations installed per container
+    private static final Map<TestContainer, Set<String>> SHARED = new WeakHashMap<TestContainer, Set<String>>();
+
+    private ProbeInstaller()
+    {
+        // utility
+    }
+
+    /**
+     * Waits for probes built in background (see {@link AsyncTestProbeProvider}).
+     *
+     * @param container started container
+     * @param probe     probe to install
+     *
+     * @return id of the installed probe. A shared probe is not part of it, it stays installed for other test classes.
+     *
+     * @throws IOException if the probe cannot be read
+     */
+    public static long install( TestContainer container, TestProbeProvider probe )
+        throws IOException
+    {
+        if( probe instanceof AsyncTestProbeProvider ) {
+            probe = ( (AsyncTestProbeProvider) probe ).get();
+        }
+        if( !( probe instanceof ModuleTestProbeProvider ) ) {
+            return container.install( probe.getStream() );
+        }
+        ModuleTestProbeProvider module = (ModuleTestProbeProvider) probe;
+        if( markShared( container, module.getSharedLocation() ) ) {
+            InputStream shared = module.getSharedStream();
+            try {
+                container.install( module.getSharedLocation(), shared );
+            } finally {
+                shared.close();
+            }
+        }
+        return container.install( module.getLocation(), probe.getStream() );
+    }
+
+    /**
+     * @return true if the location has not been installed into the container before.
+     */
+    private static boolean markShared( TestContainer container, String location )
+    {
+        synchronized( SHARED ) {
+            Set<String> locations = SHARED.get( container );
+            if( locations == null ) {
+                locations = new HashSet<String>();
+                SHARED.put( container, locations );
+            }
+            return locations.add( location );
+        }
+    }
+}
@@ -0,0 +1,424 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writes a jar entry by entry. Unlike {@link java.util.jar.JarOutputStream} it can take entries of other zip files
+ * as they are (see {@link RawZipFile}), without inflating and deflating them again.
+ *
+ * Like {@link DuplicateAwareJarOutputStream}, the first entry of a name wins and later ones are dropped.
+ *
+ * New entries are deflated by default. They can be stored instead, which is cheaper when the jar is read on the same
+ * machine, or deflated by an executor, in which case entries are written in order when {@link #close()} is called.
+ */
+public class ProbeJarWriter {
+
+    private static final int VERSION_STORED = 10;
+    private static final int VERSION_DEFLATED = 20;
+
+    final private CountingOutputStream m_out;
+    final private List<CentralEntry> m_central;
+    final private Set<String> m_names;
+    final private int m_method;
+    final private ExecutorService m_executor;
+    final private List<Object> m_pending;
+
+    public ProbeJarWriter( OutputStream out )
+    {
+        this( out, ZipEntry.DEFLATED, null );
+    }
+
+    /**
+     * @param out      stream to write the jar to
+     * @param method   {@link ZipEntry#DEFLATED} or {@link ZipEntry#STORED} for new entries
+     * @param executor executor to deflate entries with, null to deflate them on the calling thread
+     */
+    public ProbeJarWriter( OutputStream out, int method, ExecutorService executor )
+    {
+        if( method != ZipEntry.DEFLATED && method != ZipEntry.STORED ) {
+            throw new IllegalArgumentException( "Unsupported method " + method );
+        }
+        m_out = new CountingOutputStream( new BufferedOutputStream( out ) );
+        m_central = new ArrayList<CentralEntry>();
+        m_names = new HashSet<String>();
+        m_method = method;
+        m_executor = method == ZipEntry.DEFLATED ? executor : null;
+        m_pending = new ArrayList<Object>();
+    }
+
+    /**
+     * Writes the manifest. Must be the first entry so {@link java.util.jar.JarInputStream} finds it.
+     *
+     * @param manifest manifest to write
+     *
+     * @throws IOException if writing fails
+     */
+    public void putManifest( Manifest manifest )
+        throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        manifest.write( bytes );
+        put( JarFile.MANIFEST_NAME, bytes.toByteArray(), System.currentTimeMillis() );
+    }
+
+    /**
+     * Deflates (or stores) content into a new entry.
+     *
+     * @param name    name of entry
+     * @param content content, read until its end (not closed)
+     *
+     * @throws IOException if reading or writing fails
+     */
+    public void put( String name, InputStream content )
+        throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while( ( read = content.read( buffer ) ) != -1 ) {
+            bytes.write( buffer, 0, read );
+        }
+        put( name, bytes.toByteArray(), System.currentTimeMillis() );
+    }
+
+    private void put( String name, byte[] data, long time )
+        throws IOException
+    {
+        if( !m_names.add( name ) ) {
+            return;
+        }
+        Compression compression = new Compression( name, data, time, m_method );
+        if( m_executor != null ) {
+            m_pending.add( m_executor.submit( compression ) );
+        }
+        else {
+            write( compression.call() );
+        }
+    }
+
+    /**
+     * Copies an entry of another zip file without touching its data.
+     *
+     * @param source zip file containing the entry
+     * @param entry  entry to copy
+     *
+     * @throws IOException if reading or writing fails
+     */
+    public void putRaw( RawZipFile source, RawZipFile.Entry entry )
+        throws IOException
+    {
+        if( !m_names.add( entry.getName() ) ) {
+            return;
+        }
+        if( m_pending.isEmpty() ) {
+            writeRaw( source, entry );
+        }
+        else {
+            m_pending.add( new RawEntry( source, entry ) );
+        }
+    }
+
+    private void writeRaw( RawZipFile source, RawZipFile.Entry entry )
+        throws IOException
+    {
+        startEntry( entry.getName(), entry.getMethod(), entry.getDosTime(), entry.getCrc(), entry.getCompressedSize(), entry.getSize() );
+        source.copyRaw( entry, m_out );
+    }
+
+    private void write( Compressed entry )
+        throws IOException
+    {
+        startEntry( entry.m_name, entry.m_method, entry.m_dosTime, entry.m_crc, entry.m_data.length, entry.m_size );
+        m_out.write( entry.m_data );
+    }
+
+    /**
+     * Writes entries that were put while others were still being deflated, in the order they were put.
+     */
+    private void writePending()
+        throws IOException
+    {
+        for( Object pending : m_pending ) {
+            if( pending instanceof RawEntry ) {
+                writeRaw( ( (RawEntry) pending ).m_source, ( (RawEntry) pending ).m_entry );
+            }
+            else {
+                try {
+                    write( ( (Future<Compressed>) pending ).get() );
+                } catch( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException( "Interrupted while deflating probe entries." );
+                } catch( ExecutionException e ) {
+                    throw new IOException( "Deflating probe entry failed: " + e.getCause() );
+                }
+            }
+        }
+        m_pending.clear();
+    }
+
+    /**
+     * Writes the central directory and closes the underlying stream.
+     *
+     * @throws IOException if writing fails
+     */
+    public void close()
+        throws IOException
+    {
+        writePending();
+        long offset = m_out.getCount();
+        for( CentralEntry e : m_central ) {
+            writeInt( RawZipFile.CENTRAL_HEADER );
+            writeShort( e.m_method == ZipEntry.STORED ? VERSION_STORED : VERSION_DEFLATED );
+            writeShort( e.m_method == ZipEntry.STORED ? VERSION_STORED : VERSION_DEFLATED );
+            writeShort( e.m_flags );
+            writeShort( e.m_method );
+            writeInt( e.m_dosTime );
+            writeInt( (int) e.m_crc );
+            writeInt( (int) e.m_compressedSize );
+            writeInt( (int) e.m_size );
+            writeShort( e.m_name.length );
+            writeShort( 0 ); // extra
+            writeShort( 0 ); // comment
+            writeShort( 0 ); // disk
+            writeShort( 0 ); // internal attributes
+            writeInt( 0 ); // external attributes
+            writeInt( (int) e.m_offset );
+            m_out.write( e.m_name );
+        }
+        long size = m_out.getCount() - offset;
+        writeInt( RawZipFile.END_OF_CENTRAL_DIRECTORY );
+        writeShort( 0 );
+        writeShort( 0 );
+        writeShort( m_central.size() );
+        writeShort( m_central.size() );
+        writeInt( (int) size );
+        writeInt( (int) offset );
+        writeShort( 0 );
+        m_out.close();
+    }
+
+    private void startEntry( String name, int method, int dosTime, long crc, long compressedSize, long size )
+        throws IOException
+    {
+        if( m_out.getCount() > 0xffffffffL || compressedSize > 0xffffffffL || m_central.size() >= 0xffff ) {
+            throw new IOException( "Probe too large (zip64 is not supported)." );
+        }
+        byte[] bytes = name.getBytes( "UTF-8" );
+        int flags = bytes.length != name.length() ? RawZipFile.Entry.FLAG_UTF8 : 0;
+        m_central.add( new CentralEntry( bytes, flags, method, dosTime, crc, compressedSize, size, m_out.getCount() ) );
+        writeInt( RawZipFile.LOCAL_HEADER );
+        writeShort( method == ZipEntry.STORED ? VERSION_STORED : VERSION_DEFLATED );
+        writeShort( flags );
+        writeShort( method );
+        writeInt( dosTime );
+        writeInt( (int) crc );
+        writeInt( (int) compressedSize );
+        writeInt( (int) size );
+        writeShort( bytes.length );
+        writeShort( 0 );
+        m_out.write( bytes );
+    }
+
+    private void writeShort( int v )
+        throws IOException
+    {
+        m_out.write( v & 0xff );
+        m_out.write( ( v >>> 8 ) & 0xff );
+    }
+
+    private void writeInt( int v )
+        throws IOException
+    {
+        writeShort( v & 0xffff );
+        writeShort( ( v >>> 16 ) & 0xffff );
+    }
+
+    static int toDosTime( long time )
+    {
+        Calendar c = Calendar.getInstance();
+        c.setTimeInMillis( time );
+        int year = c.get( Calendar.YEAR );
+        if( year < 1980 ) {
+            return ( 1 << 21 ) | ( 1 << 16 );
+        }
+        return ( year - 1980 ) << 25
+               | ( c.get( Calendar.MONTH ) + 1 ) << 21
+               | c.get( Calendar.DAY_OF_MONTH ) << 16
+               | c.get( Calendar.HOUR_OF_DAY ) << 11
+               | c.get( Calendar.MINUTE ) << 5
+               | c.get( Calendar.SECOND ) >> 1;
+    }
+
+    /**
+     * Computes the data of a new entry.
+     */
+    private static class Compression implements Callable<Compressed> {
+
+        final private String m_name;
+        final private byte[] m_data;
+        final private long m_time;
+        final private int m_method;
+
+        Compression( String name, byte[] data, long time, int method )
+        {
+            m_name = name;
+            m_data = data;
+            m_time = time;
+            m_method = method;
+        }
+
+        public Compressed call()
+        {
+            CRC32 crc = new CRC32();
+            crc.update( m_data );
+            if( m_method == ZipEntry.STORED ) {
+                return new Compressed( m_name, ZipEntry.STORED, toDosTime( m_time ), crc.getValue(), m_data, m_data.length );
+            }
+            Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+            try {
+                deflater.setInput( m_data );
+                deflater.finish();
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream( m_data.length / 2 + 64 );
+                byte[] buffer = new byte[8192];
+                while( !deflater.finished() ) {
+                    int len = deflater.deflate( buffer );
+                    compressed.write( buffer, 0, len );
+                }
+                return new Compressed( m_name, ZipEntry.DEFLATED, toDosTime( m_time ), crc.getValue(), compressed.toByteArray(), m_data.length );
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    private static class Compressed {
+
+        final String m_name;
+        final int m_method;
+        final int m_dosTime;
+        final long m_crc;
+        final byte[] m_data;
+        final long m_size;
+
+        Compressed( String name, int method, int dosTime, long crc, byte[] data, long size )
+        {
+            m_name = name;
+            m_method = method;
+            m_dosTime = dosTime;
+            m_crc = crc;
+            m_data = data;
+            m_size = size;
+        }
+    }
+
+    private static class RawEntry {
+
+        final RawZipFile m_source;
+        final RawZipFile.Entry m_entry;
+
+        RawEntry( RawZipFile source, RawZipFile.Entry entry )
+        {
+            m_source = source;
+            m_entry = entry;
+        }
+    }
+
+    private static class CentralEntry {
+
+        final byte[] m_name;
+        final int m_flags;
+        final int m_method;
+        final int m_dosTime;
+        final long m_crc;
+        final long m_compressedSize;
+        final long m_size;
+        final long m_offset;
+
+        CentralEntry( byte[] name, int flags, int method, int dosTime, long crc, long compressedSize, long size, long offset )
+        {
+            m_name = name;
+            m_flags = flags;
+            m_method = method;
+            m_dosTime = dosTime;
+            m_crc = crc;
+            m_compressedSize = compressedSize;
+            m_size = size;
+            m_offset = offset;
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        final private OutputStream m_delegate;
+        private long m_count;
+
+        CountingOutputStream( OutputStream delegate )
+        {
+            m_delegate = delegate;
+        }
+
+        long getCount()
+        {
+            return m_count;
+        }
+
+        public void write( int b )
+            throws IOException
+        {
+            m_delegate.write( b );
+            m_count++;
+        }
+
+        public void write( byte[] b, int off, int len )
+            throws IOException
+        {
+            m_delegate.write( b, off, len );
+            m_count += len;
+        }
+
+        public void flush()
+            throws IOException
+        {
+            m_delegate.flush();
+        }
+
+        public void close()
+            throws IOException
+        {
+            m_delegate.close();
+        }
+    }
+}
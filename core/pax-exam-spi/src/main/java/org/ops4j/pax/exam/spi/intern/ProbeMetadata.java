@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarInputStream;
+import java.util.jar.Manifest;
+
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.store.Handle;
+import org.ops4j.store.Store;
+
+/**
+ * What is known about a built probe: where it is stored, its tests and the headers of its manifest.
+ */
+public class ProbeMetadata
+{
+
+    final private String m_id;
+    final private String m_location;
+    final private TestAddress[] m_tests;
+    final private Map<String, String> m_headers;
+
+    public ProbeMetadata( String id, String location, TestAddress[] tests, Map<String, String> headers )
+    {
+        m_id = id;
+        m_location = location;
+        m_tests = tests;
+        m_headers = Collections.unmodifiableMap( new LinkedHashMap<String, String>( headers ) );
+    }
+
+    /**
+     * Reads the manifest of a stored probe.
+     *
+     * @param tests tests of the probe
+     * @param store store of the probe
+     * @param probe handle of the probe
+     *
+     * @return metadata of the probe.
+     *
+     * @throws IOException if the probe cannot be read
+     */
+    public static ProbeMetadata read( TestAddress[] tests, Store<InputStream> store, Handle probe )
+        throws IOException
+    {
+        Map<String, String> headers = new LinkedHashMap<String, String>();
+        JarInputStream in = new JarInputStream( store.load( probe ) );
+        try {
+            Manifest manifest = in.getManifest();
+            if( manifest != null ) {
+                Attributes attributes = manifest.getMainAttributes();
+                for( Object key : attributes.keySet() ) {
+                    headers.put( key.toString(), String.valueOf( attributes.get( key ) ) );
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return new ProbeMetadata( probe.getIdentification(), store.getLocation( probe ).toASCIIString(), tests, headers );
+    }
+
+    public String getId()
+    {
+        return m_id;
+    }
+
+    public String getLocation()
+    {
+        return m_location;
+    }
+
+    public TestAddress[] getTests()
+    {
+        return m_tests;
+    }
+
+    /**
+     * @return headers of the manifest of the probe, in manifest order.
+     */
+    public Map<String, String> getHeaders()
+    {
+        return m_headers;
+    }
+
+    /**
+     * @param name name of a manifest header
+     *
+     * @return value of the header or null if the probe does not have it.
+     */
+    public String getHeader( String name )
+    {
+        return m_headers.get( name );
+    }
+
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder( "\n--\n" );
+        sb.append( "[Probe ID: " ).append( m_id ).append( "]\n" );
+        sb.append( "[Probe Location: " ).append( m_location ).append( "]\n" );
+        sb.append( "[Tests: \n" );
+        for( TestAddress t : m_tests ) {
+            sb.append( "    SIG=" ).append( t ).append( "\n" );
+        }
+        sb.append( "]\n" );
+        sb.append( "[Headers: \n" );
+        for( Map.Entry<String, String> header : m_headers.entrySet() ) {
+            sb.append( "    " ).append( header.getKey() ).append( "=" ).append( header.getValue() ).append( "\n" );
+        }
+        sb.append( "]\n" );
+        sb.append( "--\n" );
+        return sb.toString();
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read access to the entries of a zip file in their stored (usually compressed) form, so they can be copied to
+ * another zip file without inflating and deflating them again. See {@link ProbeJarWriter}.
+ *
+ * Only plain zip files are supported (no zip64, no encryption, single disk) which covers all jars written by the JDK
+ * and by Maven.
+ */
+public class RawZipFile {
+
+    static final int LOCAL_HEADER = 0x04034b50;
+    static final int CENTRAL_HEADER = 0x02014b50;
+    static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int END_SIZE = 22;
+    private static final int MAX_COMMENT = 0xffff;
+
+    final private File m_file;
+    final private Map<String, Entry> m_entries;
+    final private RandomAccessFile m_raf;
+
+    /**
+     * Opens the file and reads its central directory. Must be closed when done.
+     *
+     * @param file zip file
+     *
+     * @throws IOException if the file cannot be read or is not a supported zip file
+     */
+    public RawZipFile( File file )
+        throws IOException
+    {
+        m_file = file;
+        m_entries = new LinkedHashMap<String, Entry>();
+        m_raf = new RandomAccessFile( file, "r" );
+        try {
+            readCentralDirectory( m_raf );
+        } catch( IOException e ) {
+            m_raf.close();
+            throw e;
+        }
+    }
+
+    public void close()
+        throws IOException
+    {
+        m_raf.close();
+    }
+
+    public File getFile()
+    {
+        return m_file;
+    }
+
+    /**
+     * @param name name of entry
+     *
+     * @return entry or null if there is none with that name.
+     */
+    public Entry getEntry( String name )
+    {
+        return m_entries.get( name );
+    }
+
+    public Collection<Entry> getEntries()
+    {
+        return m_entries.values();
+    }
+
+    /**
+     * Copies the stored data (as found in the file) of an entry.
+     *
+     * @param entry entry of this file
+     * @param out   target
+     *
+     * @throws IOException if reading or writing fails
+     */
+    public synchronized void copyRaw( Entry entry, OutputStream out )
+        throws IOException
+    {
+        m_raf.seek( entry.m_offset );
+        byte[] header = new byte[30];
+        m_raf.readFully( header );
+        if( getInt( header, 0 ) != LOCAL_HEADER ) {
+            throw new IOException( "Bad local header of " + entry.getName() + " in " + m_file );
+        }
+        m_raf.seek( entry.m_offset + 30 + getShort( header, 26 ) + getShort( header, 28 ) );
+        byte[] buffer = new byte[8192];
+        long remaining = entry.getCompressedSize();
+        while( remaining > 0 ) {
+            int read = m_raf.read( buffer, 0, (int) Math.min( buffer.length, remaining ) );
+            if( read < 0 ) {
+                throw new IOException( "Unexpected end of " + m_file );
+            }
+            out.write( buffer, 0, read );
+            remaining -= read;
+        }
+    }
+
+    private void readCentralDirectory( RandomAccessFile raf )
+        throws IOException
+    {
+        long length = raf.length();
+        int tail = (int) Math.min( length, END_SIZE + MAX_COMMENT );
+        byte[] buffer = new byte[tail];
+        raf.seek( length - tail );
+        raf.readFully( buffer );
+        int end = -1;
+        for( int i = tail - END_SIZE; i >= 0; i-- ) {
+            if( getInt( buffer, i ) == END_OF_CENTRAL_DIRECTORY ) {
+                end = i;
+                break;
+            }
+        }
+        if( end < 0 ) {
+            throw new IOException( m_file + " is not a zip file." );
+        }
+        int count = getShort( buffer, end + 10 );
+        long size = getUnsignedInt( buffer, end + 12 );
+        long offset = getUnsignedInt( buffer, end + 16 );
+        if( count == 0xffff || size == 0xffffffffL || offset == 0xffffffffL ) {
+            throw new IOException( m_file + " is a zip64 file which is not supported." );
+        }
+        byte[] directory = new byte[(int) size];
+        raf.seek( offset );
+        raf.readFully( directory );
+
+        int pos = 0;
+        for( int i = 0; i < count; i++ ) {
+            if( getInt( directory, pos ) != CENTRAL_HEADER ) {
+                throw new IOException( "Bad central directory in " + m_file );
+            }
+            int flags = getShort( directory, pos + 8 );
+            int nameLength = getShort( directory, pos + 28 );
+            int extraLength = getShort( directory, pos + 30 );
+            int commentLength = getShort( directory, pos + 32 );
+            String name = new String( directory, pos + 46, nameLength, ( flags & Entry.FLAG_UTF8 ) != 0 ? "UTF-8" : "ISO-8859-1" );
+            Entry entry = new Entry(
+                name,
+                flags,
+                getShort( directory, pos + 10 ),
+                getInt( directory, pos + 12 ),
+                getUnsignedInt( directory, pos + 16 ),
+                getUnsignedInt( directory, pos + 20 ),
+                getUnsignedInt( directory, pos + 24 ),
+                getUnsignedInt( directory, pos + 42 )
+            );
+            if( ( flags & Entry.FLAG_ENCRYPTED ) != 0 ) {
+                throw new IOException( "Encrypted entry " + name + " in " + m_file + " is not supported." );
+            }
+            m_entries.put( name, entry );
+            pos += 46 + nameLength + extraLength + commentLength;
+        }
+    }
+
+    static int getShort( byte[] b, int off )
+    {
+        return ( b[ off ] & 0xff ) | ( ( b[ off + 1 ] & 0xff ) << 8 );
+    }
+
+    static int getInt( byte[] b, int off )
+    {
+        return getShort( b, off ) | ( getShort( b, off + 2 ) << 16 );
+    }
+
+    static long getUnsignedInt( byte[] b, int off )
+    {
+        return getInt( b, off ) & 0xffffffffL;
+    }
+
+    public String toString()
+    {
+        return "RawZipFile:" + m_file;
+    }
+
+    /**
+     * An entry as described by the central directory.
+     */
+    public static class Entry {
+
+        static final int FLAG_ENCRYPTED = 1;
+        static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+        static final int FLAG_UTF8 = 1 << 11;
+
+        final private String m_name;
+        final private int m_flags;
+        final private int m_method;
+        final private int m_dosTime;
+        final private long m_crc;
+        final private long m_compressedSize;
+        final private long m_size;
+        final private long m_offset;
+
+        Entry( String name, int flags, int method, int dosTime, long crc, long compressedSize, long size, long offset )
+        {
+            m_name = name;
+            m_flags = flags;
+            m_method = method;
+            m_dosTime = dosTime;
+            m_crc = crc;
+            m_compressedSize = compressedSize;
+            m_size = size;
+            m_offset = offset;
+        }
+
+        public String getName()
+        {
+            return m_name;
+        }
+
+        public boolean isDirectory()
+        {
+            return m_name.endsWith( "/" );
+        }
+
+        int getFlags()
+        {
+            return m_flags;
+        }
+
+        /**
+         * @return compression method as defined by {@link java.util.zip.ZipEntry}.
+         */
+        public int getMethod()
+        {
+            return m_method;
+        }
+
+        /**
+         * @return modification time and date in DOS format.
+         */
+        int getDosTime()
+        {
+            return m_dosTime;
+        }
+
+        public long getCrc()
+        {
+            return m_crc;
+        }
+
+        public long getCompressedSize()
+        {
+            return m_compressedSize;
+        }
+
+        public long getSize()
+        {
+            return m_size;
+        }
+
+        public String toString()
+        {
+            return m_name;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ops4j.pax.exam.ConfigurationManager;
+import org.ops4j.pax.exam.Constants;
+import org.ops4j.pax.exam.TestContainerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs staging tasks (like creating, starting and provisioning containers) on a bounded number of threads.
+ *
+ * With a single thread (the default) all tasks are run one after the other on the calling thread, which is
+ * exactly the classic serial staging. In any case all tasks are run to completion and failures are reported
+ * per task, so that a broken container does not hide problems of the others.
+ *
+ * The number of threads is taken from {@link Constants#EXAM_REACTOR_THREADS_KEY}.
+ */
+public class StagingExecutor
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger( StagingExecutor.class );
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    final private int m_threads;
+
+    /**
+     * @param threads maximum number of tasks to be run concurrently.
+     */
+    public StagingExecutor( int threads )
+    {
+        m_threads = Math.max( 1, threads );
+    }
+
+    /**
+     * @return an executor configured by {@link Constants#EXAM_REACTOR_THREADS_KEY}.
+     */
+    public static StagingExecutor create()
+    {
+        return new StagingExecutor( new ConfigurationManager().getIntProperty( Constants.EXAM_REACTOR_THREADS_KEY, 1 ) );
+    }
+
+    public int getThreads()
+    {
+        return m_threads;
+    }
+
+    /**
+     * Runs all tasks and waits for all of them to finish.
+     *
+     * @param tasks tasks to be run.
+     * @param <T>   result type of tasks
+     *
+     * @return results in the order of given tasks.
+     *
+     * @throws TestContainerException if at least one task failed. The message lists every failed task.
+     */
+    public <T> List<T> execute( List<? extends Task<T>> tasks )
+    {
+        if( m_threads == 1 || tasks.size() < 2 ) {
+            return executeSerial( tasks );
+        }
+        else {
+            return executeParallel( tasks );
+        }
+    }
+
+    private <T> List<T> executeSerial( List<? extends Task<T>> tasks )
+    {
+        List<T> results = new ArrayList<T>();
+        List<String> failures = new ArrayList<String>();
+        Throwable firstCause = null;
+        for( Task<T> task : tasks ) {
+            try {
+                results.add( task.call() );
+            } catch( Exception e ) {
+                firstCause = firstCause == null ? e : firstCause;
+                failures.add( failed( task, e ) );
+            }
+        }
+        check( tasks.size(), failures, firstCause );
+        return results;
+    }
+
+    private <T> List<T> executeParallel( List<? extends Task<T>> tasks )
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( Math.min( m_threads, tasks.size() ), new StagingThreadFactory() );
+        try {
+            List<Future<T>> futures = new ArrayList<Future<T>>();
+            for( Task<T> task : tasks ) {
+                futures.add( executor.submit( task ) );
+            }
+            List<T> results = new ArrayList<T>();
+            List<String> failures = new ArrayList<String>();
+            Throwable firstCause = null;
+            for( int i = 0; i < futures.size(); i++ ) {
+                try {
+                    results.add( futures.get( i ).get() );
+                } catch( ExecutionException e ) {
+                    firstCause = firstCause == null ? e.getCause() : firstCause;
+                    failures.add( failed( tasks.get( i ), e.getCause() ) );
+                }
+            }
+            check( tasks.size(), failures, firstCause );
+            return results;
+        } catch( InterruptedException e ) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new TestContainerException( "Interrupted while staging.", e );
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private String failed( Task<?> task, Throwable cause )
+    {
+        LOG.error( "Staging of " + task.getDescription() + " failed.", cause );
+        return task.getDescription() + ": " + cause;
+    }
+
+    private void check( int total, List<String> failures, Throwable firstCause )
+    {
+        if( !failures.isEmpty() ) {
+            StringBuilder sb = new StringBuilder();
+            sb.append( "Staging failed for " ).append( failures.size() ).append( " of " ).append( total ).append( " task(s):" );
+            for( String failure : failures ) {
+                sb.append( "\n    " ).append( failure );
+            }
+            throw new TestContainerException( sb.toString(), firstCause );
+        }
+    }
+
+    /**
+     * A single unit of staging work. The description is used to report failures.
+     */
+    public static abstract class Task<T> implements Callable<T>
+    {
+
+        final private String m_description;
+
+        public Task( String description )
+        {
+            m_description = description;
+        }
+
+        public String getDescription()
+        {
+            return m_description;
+        }
+    }
+
+    private static class StagingThreadFactory implements ThreadFactory
+    {
+
+        public Thread newThread( Runnable r )
+        {
+            Thread thread = new Thread( r, "Pax Exam Stager-" + THREAD_COUNT.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
+}
@@ -17,10 +17,13 @@
  */
 package org.ops4j.pax.exam.spi.intern;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Method;
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -31,9 +34,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
 import org.osgi.framework.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.ops4j.pax.exam.ConfigurationManager;
 import org.ops4j.pax.exam.TestAddress;
 import org.ops4j.pax.exam.TestContainerException;
 import org.ops4j.pax.exam.TestInstantiationInstruction;
@@ -41,6 +53,7 @@ import org.ops4j.pax.exam.TestProbeBuilder;
 import org.ops4j.pax.exam.TestProbeProvider;
 import org.ops4j.pax.exam.spi.ContentCollector;
 import org.ops4j.pax.tinybundles.core.TinyBundle;
+import org.ops4j.store.Handle;
 import org.ops4j.store.Store;
 
 import static org.ops4j.pax.tinybundles.core.TinyBundles.*;
@@ -55,18 +68,48 @@ public class TestProbeBuilderImpl implements TestProbeBuilder {
 
     private static Logger LOG = LoggerFactory.getLogger( TestProbeBuilderImpl.class );
     private static final String DEFAULT_PROBE_METHOD_NAME = "probe";
+    private static final String CONTENT_CLOSURE = "closure";
+    private static final String IMPORTS_STATIC = "static";
+    private static final String COMPRESSION_DEFLATE = "deflate";
+    private static final String COMPRESSION_STORED = "stored";
+    private static final String COMPRESSION_PARALLEL = "parallel";
+    private static final String SCOPE_MODULE = "module";
+    private static final String MODULE_PROBE_PREFIX = "PAXEXAM-MODULE-PROBE-";
 
     private final Map<TestAddress, TestInstantiationInstruction> m_probeCalls = new LinkedHashMap<TestAddress, TestInstantiationInstruction>();
     private final List<Class> m_anchors;
     private final Properties m_extraProperties;
     private final Set<String> m_ignorePackages = new HashSet<String>();
     private final Store<InputStream> m_store;
+    private final ProbeCache m_cache;
+    private final ProbeCache m_modules;
 
     public TestProbeBuilderImpl( Store<InputStream> store )
         throws IOException
+    {
+        this( store, null );
+    }
+
+    public TestProbeBuilderImpl( Store<InputStream> store, ProbeCache cache )
+        throws IOException
+    {
+        this( store, cache, null );
+    }
+
+    /**
+     * @param store   store to put the probe into
+     * @param cache   cache of formerly built probes, null to always build
+     * @param modules folder of shared probes in module scope, null to always build probes per test class
+     *
+     * @throws IOException not thrown
+     */
+    public TestProbeBuilderImpl( Store<InputStream> store, ProbeCache cache, ProbeCache modules )
+        throws IOException
     {
         m_anchors = new ArrayList<Class>();
         m_store = store;
+        m_cache = cache;
+        m_modules = modules;
         m_extraProperties = new Properties( );
     }
 
@@ -121,14 +164,56 @@ public class TestProbeBuilderImpl implements TestProbeBuilder {
         if( m_anchors.size() == 0 ) {
             throw new TestContainerException( "No tests added to setup!" );
         }
+        if( "true".equals( new ConfigurationManager().getProperty( org.ops4j.pax.exam.Constants.EXAM_PROBE_ASYNC_KEY ) ) ) {
+            return AsyncTestProbeProvider.start( getTests(), new Callable<TestProbeProvider>()
+            {
+                public TestProbeProvider call()
+                {
+                    return buildNow();
+                }
+            } );
+        }
+        return buildNow();
+    }
 
+    private TestProbeProvider buildNow()
+    {
         constructProbeTag( m_extraProperties );
         try {
-            TinyBundle bundle = prepareProbeBundle( createExtraIgnores() );
+            if( m_modules != null && SCOPE_MODULE.equals( new ConfigurationManager().getProperty( org.ops4j.pax.exam.Constants.EXAM_PROBE_SCOPE_KEY ) ) ) {
+                return buildModuleProbe();
+            }
+            Properties ignores = createExtraIgnores();
+            Map<String, URL> resources = collectResources( false );
+            addImports( resources, ignores );
+            String key = null;
+            if( m_cache != null ) {
+                Properties headers = new Properties();
+                headers.putAll( m_extraProperties );
+                headers.putAll( ignores );
+                key = ProbeCache.computeKey( resources, headers );
+                key = withCompression( key );
+                Handle cached = m_cache.load( key, headers, m_store );
+                if( cached != null ) {
+                    LOG.debug( "Probe taken from cache (" + key + ")" );
+                    report( resources, cached );
+                    return new DefaultTestProbeProvider( getTests(), m_store, cached );
+                }
+            }
+            Handle probe = m_store.store( assemble( resources, ignores ) );
+            if( key != null ) {
+                InputStream in = m_store.load( probe );
+                try {
+                    m_cache.save( key, in );
+                } finally {
+                    in.close();
+                }
+            }
+            report( resources, probe );
             return new DefaultTestProbeProvider(
                 getTests(),
                 m_store,
-                m_store.store( bundle.build( withClassicBuilder() ) )
+                probe
             );
 
         } catch( IOException e ) {
@@ -136,10 +221,180 @@ public class TestProbeBuilderImpl implements TestProbeBuilder {
         }
     }
 
-    private TinyBundle prepareProbeBundle( Properties p )
+    /**
+     * Builds (or takes from the module folder) the shared probe with all classes of the module and a bundle that only
+     * carries the test signatures of this builder and requires the shared probe.
+     */
+    private TestProbeProvider buildModuleProbe()
         throws IOException
     {
-        TinyBundle bundle = bundle(m_store).set( Constants.DYNAMICIMPORT_PACKAGE, "*" );
+        Map<String, URL> resources = collectResources( true );
+        Properties headers = new Properties();
+        addImports( resources, headers );
+        String exports = getPackages( resources );
+        if( exports.length() > 0 ) {
+            headers.put( Constants.EXPORT_PACKAGE, exports );
+        }
+        String key = withCompression( ProbeCache.computeKey( resources, headers ) );
+        String name = MODULE_PROBE_PREFIX + key;
+        File shared = m_modules.getFile( key );
+        if( shared == null ) {
+            headers.put( Constants.BUNDLE_SYMBOLICNAME, name );
+            InputStream in = writeProbeJar( resources, headers );
+            try {
+                m_modules.save( key, in );
+            } finally {
+                in.close();
+            }
+            shared = m_modules.getFile( key );
+            if( shared == null ) {
+                throw new IOException( "Module probe " + key + " could not be saved." );
+            }
+            LOG.debug( "Module probe {} built ({} bytes)", name, shared.length() );
+        }
+
+        Properties signatures = new Properties();
+        signatures.putAll( m_extraProperties );
+        signatures.put( Constants.REQUIRE_BUNDLE, name );
+        Handle probe = m_store.store( writeProbeJar( new HashMap<String, URL>(), signatures ) );
+        return new ModuleTestProbeProvider( getTests(), m_store, probe, shared );
+    }
+
+    private static String getPackages( Map<String, URL> resources )
+    {
+        Set<String> packages = new TreeSet<String>();
+        for( String name : resources.keySet() ) {
+            int idx = name.lastIndexOf( '/' );
+            if( name.endsWith( ".class" ) && idx > 0 ) {
+                packages.add( name.substring( 0, idx ).replace( '/', '.' ) );
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for( String p : packages ) {
+            if( sb.length() > 0 ) {
+                sb.append( "," );
+            }
+            sb.append( p );
+        }
+        return sb.toString();
+    }
+
+    private String withCompression( String key )
+    {
+        String compression = getCompression();
+        return COMPRESSION_DEFLATE.equals( compression ) ? key : key + "-" + compression;
+    }
+
+    private void report( Map<String, URL> resources, Handle probe )
+        throws IOException
+    {
+        if( !LOG.isDebugEnabled() ) {
+            return;
+        }
+        int classes = 0;
+        for( String name : resources.keySet() ) {
+            if( name.endsWith( ".class" ) ) {
+                classes++;
+            }
+        }
+        URI location = m_store.getLocation( probe );
+        String size = "file".equals( location.getScheme() ) ? new File( location ).length() + " bytes" : "unknown size";
+        LOG.debug( "Probe with {} classes and {} other entries ({})", new Object[]{ classes, resources.size() - classes, size } );
+    }
+
+    private InputStream assemble( Map<String, URL> resources, Properties p )
+        throws IOException
+    {
+        Properties headers = new Properties();
+        headers.putAll( m_extraProperties );
+        headers.putAll( p );
+        if( !COMPRESSION_DEFLATE.equals( getCompression() ) ) {
+            return writeProbeJar( resources, headers );
+        }
+        for( URL url : resources.values() ) {
+            if( CollectFromJar.getJarFile( url ) != null ) {
+                return writeProbeJar( resources, headers );
+            }
+        }
+        return prepareProbeBundle( resources, p ).build( withClassicBuilder() );
+    }
+
+    private String getCompression()
+    {
+        String compression = new ConfigurationManager().getProperty( org.ops4j.pax.exam.Constants.EXAM_PROBE_COMPRESSION_KEY );
+        if( COMPRESSION_STORED.equals( compression ) || COMPRESSION_PARALLEL.equals( compression ) ) {
+            return compression;
+        }
+        return COMPRESSION_DEFLATE;
+    }
+
+    /**
+     * Writes the probe without tinybundles so entries of jars can be copied without inflating them and new entries can
+     * be stored or deflated in parallel.
+     */
+    private InputStream writeProbeJar( Map<String, URL> resources, Properties p )
+        throws IOException
+    {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+        attributes.putValue( Constants.BUNDLE_SYMBOLICNAME, "" );
+        attributes.putValue( Constants.BUNDLE_MANIFESTVERSION, "2" );
+        for( Object key : p.keySet() ) {
+            attributes.putValue( (String) key, (String) p.get( key ) );
+        }
+
+        String compression = getCompression();
+        ExecutorService executor = COMPRESSION_PARALLEL.equals( compression )
+            ? Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors() )
+            : null;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ProbeJarWriter writer = new ProbeJarWriter(
+            bytes,
+            COMPRESSION_STORED.equals( compression ) ? ZipEntry.STORED : ZipEntry.DEFLATED,
+            executor
+        );
+        Map<File, RawZipFile> jars = new HashMap<File, RawZipFile>();
+        try {
+            writer.putManifest( manifest );
+            for( Map.Entry<String, URL> resource : new TreeMap<String, URL>( resources ).entrySet() ) {
+                RawZipFile.Entry entry = null;
+                File jar = CollectFromJar.getJarFile( resource.getValue() );
+                if( jar != null ) {
+                    RawZipFile zip = jars.get( jar );
+                    if( zip == null ) {
+                        zip = new RawZipFile( jar );
+                        jars.put( jar, zip );
+                    }
+                    entry = zip.getEntry( resource.getKey() );
+                    if( entry != null && resource.getKey().equals( CollectFromJar.getEntryName( resource.getValue() ) ) ) {
+                        writer.putRaw( zip, entry );
+                        continue;
+                    }
+                }
+                InputStream in = resource.getValue().openStream();
+                try {
+                    writer.put( resource.getKey(), in );
+                } finally {
+                    in.close();
+                }
+            }
+            writer.close();
+        } finally {
+            if( executor != null ) {
+                executor.shutdown();
+            }
+            for( RawZipFile zip : jars.values() ) {
+                zip.close();
+            }
+        }
+        return new ByteArrayInputStream( bytes.toByteArray() );
+    }
+
+    private TinyBundle prepareProbeBundle( Map<String, URL> map, Properties p )
+        throws IOException
+    {
+        TinyBundle bundle = bundle(m_store);
 
         bundle.set( Constants.BUNDLE_SYMBOLICNAME,"" );
         bundle.set( Constants.BUNDLE_MANIFESTVERSION, "2" );
@@ -150,17 +405,19 @@ public class TestProbeBuilderImpl implements TestProbeBuilder {
             bundle.set( (String) key, (String) p.get( key ) );
         }
 
-        Map<String, URL> map = collectResources();
         for( String item : map.keySet() ) {
             bundle.add( item, map.get( item ) );
         }
         return bundle;
     }
 
-    private Map<String, URL> collectResources()
+    /**
+     * @param module true to collect the content of the whole module, whatever the content mode
+     */
+    private Map<String, URL> collectResources( boolean module )
         throws IOException
     {
-        ContentCollector collector = selectCollector();
+        ContentCollector collector = selectCollector( module );
         Map<String, URL> map = new HashMap<String, URL>();
         collector.collect( map );
         return map;
@@ -199,13 +456,37 @@ public class TestProbeBuilderImpl implements TestProbeBuilder {
         }
     }
 
-    private ContentCollector selectCollector()
+    private ContentCollector selectCollector( boolean module )
         throws IOException
     {
         File root = findClassesFolder( m_anchors.get( 0 ) );
 
         if( root != null ) {
-            return new CompositeCollector( new CollectFromBase( root ), new CollectFromItems( m_anchors ) );
+            ConfigurationManager cm = new ConfigurationManager();
+            String[] includes = PathFilter.split( cm.getProperty( org.ops4j.pax.exam.Constants.EXAM_PROBE_INCLUDES_KEY ) );
+            String[] excludes = PathFilter.split( cm.getProperty( org.ops4j.pax.exam.Constants.EXAM_PROBE_EXCLUDES_KEY ) );
+            if( !module && CONTENT_CLOSURE.equals( cm.getProperty( org.ops4j.pax.exam.Constants.EXAM_PROBE_CONTENT_KEY ) ) ) {
+                String[] noClasses = new String[excludes.length + 1];
+                System.arraycopy( excludes, 0, noClasses, 0, excludes.length );
+                noClasses[ excludes.length ] = "**/*.class";
+                return new CompositeCollector(
+                    new CollectFromClosure( root, m_anchors, new CollectFromDirectory( root, includes, noClasses ) ),
+                    new CollectFromItems( m_anchors )
+                );
+            }
+            return new CompositeCollector( new CollectFromDirectory( root, includes, excludes ), new CollectFromItems( m_anchors ) );
+        }
+        File jar = CollectFromJar.getJarFile( m_anchors.get( 0 ).getResource( "/" + m_anchors.get( 0 ).getName().replace( '.', '/' ) + ".class" ) );
+        if( jar != null && jar.isFile() ) {
+            ConfigurationManager cm = new ConfigurationManager();
+            return new CompositeCollector(
+                new CollectFromJar(
+                    jar,
+                    PathFilter.split( cm.getProperty( org.ops4j.pax.exam.Constants.EXAM_PROBE_INCLUDES_KEY ) ),
+                    PathFilter.split( cm.getProperty( org.ops4j.pax.exam.Constants.EXAM_PROBE_EXCLUDES_KEY ) )
+                ),
+                new CollectFromItems( m_anchors )
+            );
         }
         else {
             return new CollectFromItems( m_anchors );
@@ -231,6 +512,24 @@ public class TestProbeBuilderImpl implements TestProbeBuilder {
         return extraProperties;
     }
 
+    private void addImports( Map<String, URL> resources, Properties p )
+        throws IOException
+    {
+        ConfigurationManager cm = new ConfigurationManager();
+        if( !IMPORTS_STATIC.equals( cm.getProperty( org.ops4j.pax.exam.Constants.EXAM_PROBE_IMPORTS_KEY ) ) ) {
+            p.put( Constants.DYNAMICIMPORT_PACKAGE, "*" );
+            return;
+        }
+        String imports = new ProbeImports( resources, m_ignorePackages ).getHeader();
+        if( imports.length() > 0 ) {
+            p.put( Constants.IMPORT_PACKAGE, imports );
+        }
+        String fallback = cm.getProperty( org.ops4j.pax.exam.Constants.EXAM_PROBE_DYNAMIC_IMPORTS_KEY );
+        if( fallback != null && fallback.trim().length() > 0 ) {
+            p.put( Constants.DYNAMICIMPORT_PACKAGE, fallback.trim() );
+        }
+    }
+
     private void constructProbeTag( Properties p )
     {
         // construct out of added Tests
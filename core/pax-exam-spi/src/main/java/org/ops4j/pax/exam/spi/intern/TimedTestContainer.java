@@ -0,0 +1,185 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.io.InputStream;
+
+import org.ops4j.pax.exam.ExamSystem;
+import org.ops4j.pax.exam.ReusableTestContainer;
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestContainerFactory;
+import org.ops4j.pax.exam.TimeoutException;
+
+/**
+ * Measures a container: starting and installing count as start cost, calls as test cost.
+ */
+public class TimedTestContainer implements TestContainer {
+
+    final private TestContainer m_delegate;
+    final private Sample m_sample;
+
+    public TimedTestContainer( TestContainer delegate, Sample sample )
+    {
+        m_delegate = delegate;
+        m_sample = sample;
+    }
+
+    public TestContainer start()
+        throws TimeoutException
+    {
+        long start = System.currentTimeMillis();
+        m_delegate.start();
+        m_sample.addStart( System.currentTimeMillis() - start );
+        return this;
+    }
+
+    public long install( InputStream stream )
+    {
+        long start = System.currentTimeMillis();
+        try {
+            return m_delegate.install( stream );
+        } finally {
+            m_sample.addInstall( System.currentTimeMillis() - start );
+        }
+    }
+
+    public long install( String location, InputStream stream )
+    {
+        long start = System.currentTimeMillis();
+        try {
+            return m_delegate.install( location, stream );
+        } finally {
+            m_sample.addInstall( System.currentTimeMillis() - start );
+        }
+    }
+
+    public void call( TestAddress address )
+    {
+        long start = System.currentTimeMillis();
+        try {
+            m_delegate.call( address );
+        } finally {
+            m_sample.addTest( System.currentTimeMillis() - start );
+        }
+    }
+
+    public TestContainer stop()
+        throws TimeoutException
+    {
+        m_delegate.stop();
+        return this;
+    }
+
+    public String toString()
+    {
+        return m_delegate.toString();
+    }
+
+    /**
+     * Measures a container that can uninstall bundles.
+     */
+    public static class Reusable extends TimedTestContainer implements ReusableTestContainer {
+
+        final private ReusableTestContainer m_reusable;
+
+        public Reusable( ReusableTestContainer delegate, Sample sample )
+        {
+            super( delegate, sample );
+            m_reusable = delegate;
+        }
+
+        public void uninstall( long bundleId )
+        {
+            m_reusable.uninstall( bundleId );
+        }
+    }
+
+    /**
+     * Creates containers that report to the same sample.
+     */
+    public static class Factory implements TestContainerFactory {
+
+        final private TestContainerFactory m_delegate;
+        final private Sample m_sample;
+
+        public Factory( TestContainerFactory delegate, Sample sample )
+        {
+            m_delegate = delegate;
+            m_sample = sample;
+        }
+
+        public TestContainer[] create( ExamSystem system )
+        {
+            TestContainer[] containers = m_delegate.create( system );
+            TestContainer[] timed = new TestContainer[containers.length];
+            for( int i = 0; i < containers.length; i++ ) {
+                if( containers[ i ] instanceof ReusableTestContainer ) {
+                    timed[ i ] = new Reusable( (ReusableTestContainer) containers[ i ], m_sample );
+                }
+                else {
+                    timed[ i ] = new TimedTestContainer( containers[ i ], m_sample );
+                }
+            }
+            return timed;
+        }
+    }
+
+    /**
+     * Collected timings of one or more containers. Install time is added to the start cost.
+     */
+    public static class Sample {
+
+        private long m_start;
+        private int m_starts;
+        private long m_install;
+        private long m_test;
+        private int m_tests;
+
+        public synchronized void addStart( long millis )
+        {
+            m_start += millis;
+            m_starts++;
+        }
+
+        public synchronized void addInstall( long millis )
+        {
+            m_install += millis;
+        }
+
+        public synchronized void addTest( long millis )
+        {
+            m_test += millis;
+            m_tests++;
+        }
+
+        /**
+         * @return average milliseconds to start and provision a container, -1 if nothing has been started.
+         */
+        public synchronized long getStartCost()
+        {
+            return m_starts == 0 ? -1 : ( m_start + m_install ) / m_starts;
+        }
+
+        /**
+         * @return average milliseconds of a single call, -1 if nothing has been called.
+         */
+        public synchronized long getTestCost()
+        {
+            return m_tests == 0 ? -1 : m_test / m_tests;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import org.ops4j.io.FileUtils;
+import org.ops4j.pax.exam.ConfigurationManager;
+import org.ops4j.pax.exam.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deletes folders in background. A folder is first renamed into a trash folder next to it (".pax-exam-trash"), which
+ * is immediate, and then deleted by a low priority thread.
+ *
+ * Each trash can has a folder of its own in every trash folder, guarded by a lock file next to it. Folders of other
+ * trash cans are emptied the first time a trash folder is used, but only if their lock can be taken, which means
+ * their JVM is gone (like after a crash).
+ *
+ * The default trash can waits for pending deletions when the JVM shuts down, but no longer than
+ * {@link Constants#EXAM_REAPER_TIMEOUT_KEY}.
+ */
+public class TrashCan
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger( TrashCan.class );
+
+    public static final String TRASH_FOLDER = ".pax-exam-trash";
+
+    private static final String LOCK_SUFFIX = ".lock";
+
+    private static TrashCan s_default;
+
+    final private ExecutorService m_executor;
+    final private String m_owner;
+    final private Set<File> m_swept;
+    final private Map<File, FileLock> m_owned;
+    private int m_pending;
+    private boolean m_closed;
+
+    /**
+     * @param executor executor to delete folders with, null to delete them on the calling thread
+     */
+    public TrashCan( ExecutorService executor )
+    {
+        m_executor = executor;
+        m_owner = UUID.randomUUID().toString();
+        m_swept = new HashSet<File>();
+        m_owned = new LinkedHashMap<File, FileLock>();
+    }
+
+    /**
+     * @return the trash can of this JVM, deleting on a single low priority thread.
+     */
+    public static synchronized TrashCan getDefault()
+    {
+        if( s_default == null ) {
+            final int timeout = new ConfigurationManager().getIntProperty( Constants.EXAM_REAPER_TIMEOUT_KEY, 5 * 60 * 1000 );
+            final TrashCan trashCan = new TrashCan( Executors.newSingleThreadExecutor( new ThreadFactory()
+            {
+                public Thread newThread( Runnable r )
+                {
+                    Thread thread = new Thread( r, "Pax Exam Trash Can" );
+                    thread.setDaemon( true );
+                    thread.setPriority( Thread.MIN_PRIORITY );
+                    return thread;
+                }
+            } ) );
+            Runtime.getRuntime().addShutdownHook( new Thread( "Pax Exam Trash Can Shutdown" )
+            {
+                public void run()
+                {
+                    trashCan.close( timeout );
+                }
+            } );
+            s_default = trashCan;
+        }
+        return s_default;
+    }
+
+    /**
+     * Moves a folder out of the way and deletes it. Folders that cannot be renamed (like on another file system than
+     * their parent) are deleted right away.
+     *
+     * @param folder folder to delete
+     *
+     * @return completes when the folder is gone.
+     */
+    public Future<?> delete( File folder )
+    {
+        File parent = folder.getAbsoluteFile().getParentFile();
+        if( !folder.exists() || parent == null ) {
+            return run( delete( folder, "folder" ), false );
+        }
+        File trash = new File( parent, TRASH_FOLDER );
+        sweep( trash );
+        File own = getOwnFolder( trash );
+        if( own != null ) {
+            File target = new File( own, folder.getName() + "-" + UUID.randomUUID() );
+            if( folder.renameTo( target ) ) {
+                return run( delete( target, "trash" ), true );
+            }
+        }
+        LOG.debug( "Could not move " + folder + " to trash, deleting it now." );
+        return run( delete( folder, "folder" ), false );
+    }
+
+    /**
+     * Empties the folders of trash cans that are gone in background, if this has not been done before.
+     *
+     * @param trash trash folder (see {@link #TRASH_FOLDER})
+     */
+    public void sweep( File trash )
+    {
+        synchronized( m_swept ) {
+            if( !m_swept.add( trash.getAbsoluteFile() ) ) {
+                return;
+            }
+        }
+        File[] files = trash.listFiles();
+        if( files == null ) {
+            return;
+        }
+        for( File f : files ) {
+            String name = f.getName();
+            if( name.endsWith( LOCK_SUFFIX ) && !name.equals( m_owner + LOCK_SUFFIX ) ) {
+                run( sweep( f, new File( trash, name.substring( 0, name.length() - LOCK_SUFFIX.length() ) ) ), true );
+            }
+        }
+    }
+
+    /**
+     * Waits for pending deletions.
+     *
+     * @param timeout maximum milliseconds to wait.
+     *
+     * @return true if nothing is pending any more.
+     */
+    public synchronized boolean await( long timeout )
+    {
+        long end = System.currentTimeMillis() + timeout;
+        try {
+            for( long left = timeout; m_pending > 0 && left > 0; left = end - System.currentTimeMillis() ) {
+                wait( left );
+            }
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+        return m_pending == 0;
+    }
+
+    /**
+     * Waits for pending deletions and gives up the own trash folders. Folders handed over later are deleted right away.
+     *
+     * @param timeout maximum milliseconds to wait.
+     */
+    public void close( long timeout )
+    {
+        synchronized( this ) {
+            m_closed = true;
+        }
+        if( !await( timeout ) ) {
+            LOG.warn( "Temporary folders have not been deleted within " + timeout + " ms. They will be deleted by a later run." );
+        }
+        synchronized( m_owned ) {
+            for( Map.Entry<File, FileLock> entry : m_owned.entrySet() ) {
+                // only gone if empty, otherwise it is left for the next sweep.
+                boolean empty = new File( entry.getKey(), m_owner ).delete();
+                unlock( entry.getValue() );
+                if( empty ) {
+                    new File( entry.getKey(), m_owner + LOCK_SUFFIX ).delete();
+                }
+            }
+            m_owned.clear();
+        }
+    }
+
+    /**
+     * @return the folder of this trash can in the given trash folder, null if it cannot be created.
+     */
+    private File getOwnFolder( File trash )
+    {
+        File own = new File( trash, m_owner );
+        synchronized( m_owned ) {
+            if( m_owned.containsKey( trash ) ) {
+                return own;
+            }
+            // the lock comes first, so sweepers never see the folder without it.
+            trash.mkdirs();
+            try {
+                RandomAccessFile file = new RandomAccessFile( new File( trash, m_owner + LOCK_SUFFIX ), "rw" );
+                FileLock lock = file.getChannel().tryLock();
+                if( lock == null ) {
+                    file.close();
+                    return null;
+                }
+                m_owned.put( trash, lock );
+            } catch( IOException e ) {
+                LOG.debug( "Could not lock trash folder " + trash, e );
+                return null;
+            }
+            own.mkdirs();
+            return own;
+        }
+    }
+
+    private Future<?> run( final Runnable task, boolean background )
+    {
+        synchronized( this ) {
+            if( background && m_executor != null && !m_closed ) {
+                m_pending++;
+                return m_executor.submit( new Runnable()
+                {
+                    public void run()
+                    {
+                        try {
+                            task.run();
+                        } finally {
+                            done();
+                        }
+                    }
+                } );
+            }
+        }
+        FutureTask<Object> done = new FutureTask<Object>( task, null );
+        done.run();
+        return done;
+    }
+
+    private synchronized void done()
+    {
+        m_pending--;
+        notifyAll();
+    }
+
+    private static Runnable delete( final File file, final String what )
+    {
+        return new Runnable()
+        {
+            public void run()
+            {
+                long start = System.currentTimeMillis();
+                FileUtils.delete( file );
+                LOG.debug( "Deleted " + what + " " + file + " in " + ( System.currentTimeMillis() - start ) + " ms" );
+            }
+        };
+    }
+
+    /**
+     * Deletes the folder of another trash can if its lock can be taken.
+     */
+    private static Runnable sweep( final File lockFile, final File folder )
+    {
+        return new Runnable()
+        {
+            public void run()
+            {
+                try {
+                    RandomAccessFile file = new RandomAccessFile( lockFile, "rw" );
+                    try {
+                        FileLock lock;
+                        try {
+                            lock = file.getChannel().tryLock();
+                        } catch( OverlappingFileLockException e ) {
+                            // held by this JVM
+                            lock = null;
+                        }
+                        if( lock == null ) {
+                            LOG.debug( "Trash " + folder + " is still in use." );
+                            return;
+                        }
+                        try {
+                            if( folder.exists() ) {
+                                delete( folder, "stale" ).run();
+                            }
+                        } finally {
+                            lock.release();
+                        }
+                    } finally {
+                        file.close();
+                    }
+                    lockFile.delete();
+                } catch( IOException e ) {
+                    LOG.debug( "Could not sweep " + folder, e );
+                }
+            }
+        };
+    }
+
+    private static void unlock( FileLock lock )
+    {
+        try {
+            lock.release();
+            lock.channel().close();
+        } catch( IOException e ) {
+            LOG.debug( "Could not release " + lock, e );
+        }
+    }
+}
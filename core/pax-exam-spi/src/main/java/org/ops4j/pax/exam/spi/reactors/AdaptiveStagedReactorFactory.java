@@ -0,0 +1,254 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.spi.ConfigurationAwareStagedReactorFactory;
+import org.ops4j.pax.exam.spi.ParallelStagedExamReactor;
+import org.ops4j.pax.exam.spi.StagedConfiguration;
+import org.ops4j.pax.exam.spi.StagedExamReactor;
+import org.ops4j.pax.exam.spi.intern.TimedTestContainer;
+import org.ops4j.pax.exam.spi.intern.TimedTestContainer.Sample;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Picks confined, eager or partitioned execution based on the costs recorded in former runs (see
+ * {@link ReactorTimings}). Costs are recorded per test class and configuration; the strategy with the lowest estimated
+ * wall-clock time is used. Without recorded costs all tests share one container per configuration.
+ *
+ * Use it with {@code @ExamReactorStrategy( AdaptiveStagedReactorFactory.class )}.
+ * Tests must be independent of each other as they may end up in different containers.
+ */
+public class AdaptiveStagedReactorFactory implements ConfigurationAwareStagedReactorFactory
+{
+
+    private static Logger LOG = LoggerFactory.getLogger( AdaptiveStagedReactorFactory.class );
+
+    /**
+     * One container per test.
+     */
+    public static final int CONFINED = 0;
+
+    /**
+     * One container per configuration shared by all tests. Values above are the number of partitions.
+     */
+    public static final int EAGER = 1;
+
+    /**
+     * Share of a start that starting one more container in parallel adds to the wall-clock time.
+     */
+    private static final double PARALLEL_START_PENALTY = 0.25;
+
+    public StagedExamReactor create( List<TestContainer> containers, List<TestProbeProvider> mProbes )
+    {
+        // containers have been created by someone else, nothing to measure or choose.
+        return new EagerSingleStagedReactor( containers, mProbes );
+    }
+
+    public StagedExamReactor createFromConfigurations( List<StagedConfiguration> configurations, List<TestProbeProvider> probes )
+        throws IOException
+    {
+        if( configurations.isEmpty() ) {
+            return new EagerSingleStagedReactor( new ArrayList<TestContainer>(), probes );
+        }
+        ReactorTimings timings = new ReactorTimings( configurations.get( 0 ).getSystem().getConfigFolder() );
+        String testClass = getTestClass( probes );
+        int tests = 0;
+        for( TestProbeProvider probe : probes ) {
+            tests += probe.getTests().length;
+        }
+
+        long start = 0;
+        long test = 0;
+        boolean known = true;
+        List<String> keys = new ArrayList<String>();
+        List<Sample> samples = new ArrayList<Sample>();
+        List<StagedConfiguration> timed = new ArrayList<StagedConfiguration>();
+        for( StagedConfiguration configuration : configurations ) {
+            String fingerprint = configuration.getFingerprint();
+            // configurations that cannot be told apart from others are not timed.
+            String key = fingerprint == null ? null : testClass + "@" + fingerprint.substring( 0, 12 );
+            long[] costs = key == null ? null : timings.get( key );
+            if( costs == null ) {
+                known = false;
+            }
+            else {
+                // configurations run one after another, so their costs simply add up.
+                start += costs[ 0 ];
+                test += costs[ 1 ];
+            }
+            Sample sample = new Sample();
+            keys.add( key );
+            samples.add( sample );
+            timed.add( new StagedConfiguration( configuration.getSystem(), configuration.getOptions(),
+                                                new TimedTestContainer.Factory( configuration.getFactory(), sample ) ) );
+        }
+
+        int strategy = known ? choose( start, test, tests, Runtime.getRuntime().availableProcessors() ) : EAGER;
+        LOG.info( "Running " + testClass + " " + describe( strategy ) + ( known ? " (start " + start + "ms, test " + test + "ms)" : " (no timings yet)" ) );
+        return new AdaptiveStagedReactor( stage( strategy, timed, probes ), timings, keys, samples );
+    }
+
+    private static StagedExamReactor stage( int strategy, List<StagedConfiguration> configurations, List<TestProbeProvider> probes )
+        throws IOException
+    {
+        if( strategy > EAGER ) {
+            return new PartitionedStagedReactor( configurations, probes, strategy );
+        }
+        List<TestContainer> containers = new ArrayList<TestContainer>();
+        for( StagedConfiguration configuration : configurations ) {
+            containers.addAll( Arrays.asList( configuration.createContainers() ) );
+        }
+        if( strategy == CONFINED ) {
+            return new AllConfinedStagedReactor( containers, probes );
+        }
+        return new EagerSingleStagedReactor( containers, probes );
+    }
+
+    /**
+     * Chooses the strategy with the lowest estimated wall-clock time.
+     *
+     * @param start      milliseconds to start and provision a container
+     * @param test       milliseconds of a single test
+     * @param tests      number of tests
+     * @param processors upper bound for partitions
+     *
+     * @return {@link #CONFINED}, {@link #EAGER} or the number of partitions.
+     */
+    public static int choose( long start, long test, int tests, int processors )
+    {
+        int best = EAGER;
+        double bestCost = estimate( EAGER, start, test, tests );
+        double confined = estimate( CONFINED, start, test, tests );
+        // same cost means a single test, which then gets a container of its own for free.
+        if( confined <= bestCost ) {
+            best = CONFINED;
+            bestCost = confined;
+        }
+        for( int k = 2; k <= Math.min( processors, tests ); k++ ) {
+            double cost = estimate( k, start, test, tests );
+            if( cost < bestCost ) {
+                best = k;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return estimated wall-clock time in milliseconds of running tests with strategy.
+     */
+    static double estimate( int strategy, long start, long test, int tests )
+    {
+        if( strategy == CONFINED ) {
+            return tests * (double) ( start + test );
+        }
+        if( strategy == EAGER ) {
+            return start + tests * (double) test;
+        }
+        int rounds = ( tests + strategy - 1 ) / strategy;
+        return start * ( 1 + PARALLEL_START_PENALTY * ( strategy - 1 ) ) + rounds * (double) test;
+    }
+
+    private static String describe( int strategy )
+    {
+        if( strategy == CONFINED ) {
+            return "confined";
+        }
+        if( strategy == EAGER ) {
+            return "eager";
+        }
+        return "partitioned (" + strategy + ")";
+    }
+
+    /**
+     * @return name of the test class (caption of a test without its method).
+     */
+    static String getTestClass( List<TestProbeProvider> probes )
+    {
+        for( TestProbeProvider probe : probes ) {
+            for( TestAddress address : probe.getTests() ) {
+                String caption = address.root().caption();
+                int idx = caption.lastIndexOf( '.' );
+                return idx > 0 ? caption.substring( 0, idx ) : caption;
+            }
+        }
+        return "unknown";
+    }
+
+    public String toString()
+    {
+        return "AdaptiveStagedReactorFactory";
+    }
+
+    /**
+     * Records the timings when done.
+     */
+    private static class AdaptiveStagedReactor implements ParallelStagedExamReactor
+    {
+
+        final private StagedExamReactor m_delegate;
+        final private ReactorTimings m_timings;
+        final private List<String> m_keys;
+        final private List<Sample> m_samples;
+
+        AdaptiveStagedReactor( StagedExamReactor delegate, ReactorTimings timings, List<String> keys, List<Sample> samples )
+        {
+            m_delegate = delegate;
+            m_timings = timings;
+            m_keys = keys;
+            m_samples = samples;
+        }
+
+        public void invoke( TestAddress address )
+            throws Exception
+        {
+            m_delegate.invoke( address );
+        }
+
+        public Set<TestAddress> getTargets()
+        {
+            return m_delegate.getTargets();
+        }
+
+        public int getParallelism()
+        {
+            if( m_delegate instanceof ParallelStagedExamReactor ) {
+                return ( (ParallelStagedExamReactor) m_delegate ).getParallelism();
+            }
+            return 1;
+        }
+
+        public void tearDown()
+        {
+            m_delegate.tearDown();
+            for( int i = 0; i < m_keys.size(); i++ ) {
+                if( m_keys.get( i ) != null ) {
+                    m_timings.record( m_keys.get( i ), m_samples.get( i ) );
+                }
+            }
+        }
+    }
+}
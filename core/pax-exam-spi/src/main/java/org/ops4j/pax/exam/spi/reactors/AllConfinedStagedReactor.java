@@ -23,6 +23,7 @@ import org.ops4j.pax.exam.TestContainer;
 import org.ops4j.pax.exam.TestProbeProvider;
 import org.ops4j.pax.exam.spi.StagedExamReactor;
 import org.ops4j.pax.exam.spi.intern.DefaultTestAddress;
+import org.ops4j.pax.exam.spi.intern.ProbeInstaller;
 
 /**
  * This will use new containers for any regression (hence confined)
@@ -69,7 +70,7 @@ public class AllConfinedStagedReactor implements StagedExamReactor
         {
             for ( TestProbeProvider builder : m_probes )
             {
-                container.install( builder.getStream() );
+                ProbeInstaller.install( container, builder );
             }
             container.call( address );
         } finally
@@ -0,0 +1,175 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.spi.ConfigurationAwareStagedReactorFactory;
+import org.ops4j.pax.exam.spi.StagedConfiguration;
+import org.ops4j.pax.exam.spi.StagedExamReactor;
+import org.ops4j.pax.exam.spi.StagedExamReactorFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Routes targets to sub reactors, one per strategy in use. Each sub reactor gets its own containers and sees only
+ * the tests assigned to its strategy. Strategies without tests are not staged at all.
+ */
+public class CompositeStagedReactor implements StagedExamReactor {
+
+    private static Logger LOG = LoggerFactory.getLogger( CompositeStagedReactor.class );
+
+    final private List<StagedExamReactor> m_reactors;
+    final private LinkedHashMap<TestAddress, StagedExamReactor> m_map;
+
+    /**
+     * @param configurations configurations to create containers from
+     * @param probes         probes containing all tests
+     * @param defaultFactory strategy for all tests without override
+     * @param overrides      strategies by root address of test
+     *
+     * @throws IOException if containers cannot be created
+     */
+    public CompositeStagedReactor( List<StagedConfiguration> configurations, List<TestProbeProvider> probes,
+                                   StagedExamReactorFactory defaultFactory, Map<TestAddress, StagedExamReactorFactory> overrides )
+        throws IOException
+    {
+        m_reactors = new ArrayList<StagedExamReactor>();
+        m_map = new LinkedHashMap<TestAddress, StagedExamReactor>();
+
+        // split tests by strategy, keeping the order of first use.
+        Map<StagedExamReactorFactory, Map<TestProbeProvider, List<TestAddress>>> split =
+            new LinkedHashMap<StagedExamReactorFactory, Map<TestProbeProvider, List<TestAddress>>>();
+        for( TestProbeProvider probe : probes ) {
+            for( TestAddress address : probe.getTests() ) {
+                StagedExamReactorFactory factory = overrides.get( address.root() );
+                if( factory == null ) {
+                    factory = defaultFactory;
+                }
+                Map<TestProbeProvider, List<TestAddress>> byProbe = split.get( factory );
+                if( byProbe == null ) {
+                    byProbe = new LinkedHashMap<TestProbeProvider, List<TestAddress>>();
+                    split.put( factory, byProbe );
+                }
+                List<TestAddress> tests = byProbe.get( probe );
+                if( tests == null ) {
+                    tests = new ArrayList<TestAddress>();
+                    byProbe.put( probe, tests );
+                }
+                tests.add( address );
+            }
+        }
+
+        try {
+            for( Map.Entry<StagedExamReactorFactory, Map<TestProbeProvider, List<TestAddress>>> entry : split.entrySet() ) {
+                List<TestProbeProvider> filtered = new ArrayList<TestProbeProvider>();
+                for( Map.Entry<TestProbeProvider, List<TestAddress>> byProbe : entry.getValue().entrySet() ) {
+                    filtered.add( new FilteredProbeProvider( byProbe.getKey(), byProbe.getValue() ) );
+                }
+                LOG.debug( "Staging " + entry.getKey() + " for " + filtered.size() + " probe(s)." );
+                StagedExamReactor reactor = stage( entry.getKey(), configurations, filtered );
+                m_reactors.add( reactor );
+                for( TestAddress target : reactor.getTargets() ) {
+                    m_map.put( target, reactor );
+                }
+            }
+        } catch( IOException e ) {
+            tearDown();
+            throw e;
+        } catch( RuntimeException e ) {
+            tearDown();
+            throw e;
+        }
+    }
+
+    private static StagedExamReactor stage( StagedExamReactorFactory factory, List<StagedConfiguration> configurations, List<TestProbeProvider> probes )
+        throws IOException
+    {
+        if( factory instanceof ConfigurationAwareStagedReactorFactory ) {
+            return ( (ConfigurationAwareStagedReactorFactory) factory ).createFromConfigurations( configurations, probes );
+        }
+        List<TestContainer> containers = new ArrayList<TestContainer>();
+        for( StagedConfiguration configuration : configurations ) {
+            containers.addAll( Arrays.asList( configuration.createContainers() ) );
+        }
+        return factory.create( containers, probes );
+    }
+
+    public void invoke( TestAddress address )
+        throws Exception
+    {
+        assert ( address != null ) : "TestAddress must not be null.";
+
+        StagedExamReactor reactor = m_map.get( address );
+        if( reactor == null ) {
+            throw new IllegalArgumentException( "TestAddress " + address + " not from this reactor? Got it from getTargets() really?" );
+        }
+        reactor.invoke( address );
+    }
+
+    public Set<TestAddress> getTargets()
+    {
+        return m_map.keySet();
+    }
+
+    public void tearDown()
+    {
+        for( StagedExamReactor reactor : m_reactors ) {
+            reactor.tearDown();
+        }
+    }
+
+    /**
+     * A probe that shows only some of its tests.
+     */
+    private static class FilteredProbeProvider implements TestProbeProvider {
+
+        final private TestProbeProvider m_probe;
+        final private TestAddress[] m_tests;
+
+        FilteredProbeProvider( TestProbeProvider probe, List<TestAddress> tests )
+        {
+            m_probe = probe;
+            m_tests = tests.toArray( new TestAddress[tests.size()] );
+        }
+
+        public TestAddress[] getTests()
+        {
+            return m_tests;
+        }
+
+        public InputStream getStream()
+            throws IOException
+        {
+            return m_probe.getStream();
+        }
+
+        public String toString()
+        {
+            return m_probe.toString();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.spi.ConfigurationAwareStagedReactorFactory;
+import org.ops4j.pax.exam.spi.StagedConfiguration;
+import org.ops4j.pax.exam.spi.StagedExamReactor;
+import org.ops4j.pax.exam.spi.StagedExamReactorFactory;
+
+/**
+ * Uses different strategies for different tests: a default one plus overrides for single tests (like a test method
+ * that needs a container of its own while all others share one).
+ *
+ * Overrides are registered by the root address of a test.
+ */
+public class CompositeStagedReactorFactory implements ConfigurationAwareStagedReactorFactory
+{
+
+    final private StagedExamReactorFactory m_default;
+    final private Map<TestAddress, StagedExamReactorFactory> m_overrides;
+
+    /**
+     * @param defaultFactory strategy for all tests without override
+     */
+    public CompositeStagedReactorFactory( StagedExamReactorFactory defaultFactory )
+    {
+        m_default = defaultFactory;
+        m_overrides = new LinkedHashMap<TestAddress, StagedExamReactorFactory>();
+    }
+
+    /**
+     * @param address root address of test
+     * @param factory strategy to be used for that test
+     *
+     * @return this for fluent api
+     */
+    public CompositeStagedReactorFactory override( TestAddress address, StagedExamReactorFactory factory )
+    {
+        m_overrides.put( address.root(), factory );
+        return this;
+    }
+
+    public StagedExamReactor create( List<TestContainer> containers, List<TestProbeProvider> mProbes )
+    {
+        // containers can only be used by one strategy.
+        return m_default.create( containers, mProbes );
+    }
+
+    public StagedExamReactor createFromConfigurations( List<StagedConfiguration> configurations, List<TestProbeProvider> probes )
+        throws IOException
+    {
+        return new CompositeStagedReactor( configurations, probes, m_default, m_overrides );
+    }
+
+    public String toString()
+    {
+        return "CompositeStagedReactorFactory:default=" + m_default + ";overrides=" + m_overrides.size();
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.ops4j.pax.exam.ConfigurationManager;
+import org.ops4j.pax.exam.Constants;
+import org.ops4j.pax.exam.ExamSystem;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.spi.DefaultExamSystem;
+import org.ops4j.pax.exam.spi.StagedConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps started containers alive across reactors (usually: test classes) of the same JVM.
+ *
+ * Containers are looked up by the fingerprint of their configuration (see {@link StagedConfiguration#getFingerprint()}).
+ * Configurations without a fingerprint get new containers that are stopped when released.
+ * A container is used by one reactor at a time. When released, it is kept as idle until it is acquired again,
+ * the number of idle containers exceeds {@link Constants#EXAM_POOL_MAX_IDLE_KEY} (least recently used go first) or it
+ * has been idle for longer than {@link Constants#EXAM_POOL_IDLE_TIMEOUT_KEY}. All remaining containers are stopped when
+ * the JVM shuts down.
+ *
+ * Pooled containers live in their own {@link ExamSystem} because the system of the reactor that created them is
+ * cleared when the test class is done.
+ */
+public class ContainerPool
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger( ContainerPool.class );
+
+    private static ContainerPool s_instance;
+
+    final private int m_maxIdle;
+    final private long m_idleTimeout;
+    final private LinkedList<PooledContainers> m_idle = new LinkedList<PooledContainers>();
+    final private Set<PooledContainers> m_all = new LinkedHashSet<PooledContainers>();
+    private Timer m_timer;
+
+    /**
+     * @param maxIdle     maximum number of idle entries kept
+     * @param idleTimeout milliseconds an entry may be idle before it is stopped. 0 or less disables time based eviction.
+     */
+    public ContainerPool( int maxIdle, long idleTimeout )
+    {
+        m_maxIdle = Math.max( 0, maxIdle );
+        m_idleTimeout = idleTimeout;
+    }
+
+    /**
+     * @return the JVM wide pool, configured by {@link Constants#EXAM_POOL_MAX_IDLE_KEY} and
+     *         {@link Constants#EXAM_POOL_IDLE_TIMEOUT_KEY}.
+     */
+    public static synchronized ContainerPool getInstance()
+    {
+        if( s_instance == null ) {
+            ConfigurationManager cm = new ConfigurationManager();
+            final ContainerPool pool = new ContainerPool(
+                cm.getIntProperty( Constants.EXAM_POOL_MAX_IDLE_KEY, 4 ),
+                cm.getIntProperty( Constants.EXAM_POOL_IDLE_TIMEOUT_KEY, 5 * 60 * 1000 )
+            );
+            Runtime.getRuntime().addShutdownHook( new Thread( "Pax Exam Container Pool Shutdown" ) {
+                public void run()
+                {
+                    pool.shutdown();
+                }
+            } );
+            s_instance = pool;
+        }
+        return s_instance;
+    }
+
+    /**
+     * Gets an idle entry matching the configuration or creates (and starts) a new one.
+     *
+     * @param configuration configuration to be matched.
+     *
+     * @return started containers for exclusive use until they are released or discarded.
+     *
+     * @throws IOException if the system for new containers cannot be created.
+     */
+    public PooledContainers acquire( StagedConfiguration configuration )
+        throws IOException
+    {
+        String fingerprint = configuration.getFingerprint();
+        // without a fingerprint there is nothing to match, the containers are used once.
+        synchronized( this ) {
+            // prefer the most recently used one
+            for( ListIterator<PooledContainers> it = m_idle.listIterator( m_idle.size() ); fingerprint != null && it.hasPrevious(); ) {
+                PooledContainers candidate = it.previous();
+                if( fingerprint.equals( candidate.getFingerprint() ) ) {
+                    it.remove();
+                    LOG.debug( "Reusing pooled containers " + candidate );
+                    return candidate;
+                }
+            }
+        }
+        ExamSystem system = DefaultExamSystem.create( configuration.getCombinedOptions() );
+        PooledContainers created = new PooledContainers( fingerprint, system, configuration.getFactory().create( system ) );
+        try {
+            for( TestContainer container : created.getContainers() ) {
+                container.start();
+            }
+        } catch( RuntimeException e ) {
+            created.stop();
+            throw e;
+        }
+        synchronized( this ) {
+            m_all.add( created );
+        }
+        LOG.debug( "Created pooled containers " + created );
+        return created;
+    }
+
+    /**
+     * Returns containers to the pool. They must not have any state left from their last use.
+     *
+     * @param containers as acquired before.
+     */
+    public void release( PooledContainers containers )
+    {
+        if( containers.getFingerprint() == null ) {
+            // nobody can tell whether another configuration would get equal containers.
+            discard( containers );
+            return;
+        }
+        List<PooledContainers> evicted = new ArrayList<PooledContainers>();
+        synchronized( this ) {
+            containers.touch();
+            m_idle.addLast( containers );
+            while( m_idle.size() > m_maxIdle ) {
+                evicted.add( m_idle.removeFirst() );
+            }
+            m_all.removeAll( evicted );
+            scheduleEviction();
+        }
+        stop( evicted );
+    }
+
+    /**
+     * Stops containers that cannot be reused (like when cleaning up after their last use failed).
+     *
+     * @param containers as acquired before.
+     */
+    public void discard( PooledContainers containers )
+    {
+        synchronized( this ) {
+            m_idle.remove( containers );
+            m_all.remove( containers );
+        }
+        containers.stop();
+    }
+
+    /**
+     * Stops all entries that have been idle for too long.
+     */
+    public void evictIdle()
+    {
+        List<PooledContainers> evicted = new ArrayList<PooledContainers>();
+        synchronized( this ) {
+            long now = System.currentTimeMillis();
+            for( Iterator<PooledContainers> it = m_idle.iterator(); it.hasNext(); ) {
+                PooledContainers candidate = it.next();
+                if( m_idleTimeout > 0 && now - candidate.getLastUsed() >= m_idleTimeout ) {
+                    it.remove();
+                    m_all.remove( candidate );
+                    evicted.add( candidate );
+                }
+            }
+        }
+        stop( evicted );
+    }
+
+    public synchronized int getIdleCount()
+    {
+        return m_idle.size();
+    }
+
+    /**
+     * Stops all containers known to this pool (idle or not).
+     */
+    public void shutdown()
+    {
+        List<PooledContainers> all;
+        synchronized( this ) {
+            all = new ArrayList<PooledContainers>( m_all );
+            m_all.clear();
+            m_idle.clear();
+            if( m_timer != null ) {
+                m_timer.cancel();
+                m_timer = null;
+            }
+        }
+        stop( all );
+    }
+
+    private void scheduleEviction()
+    {
+        if( m_timer == null && m_idleTimeout > 0 ) {
+            long period = Math.max( 1000, m_idleTimeout / 2 );
+            m_timer = new Timer( "Pax Exam Container Pool", true );
+            m_timer.schedule( new TimerTask() {
+                public void run()
+                {
+                    evictIdle();
+                }
+            }, period, period );
+        }
+    }
+
+    private void stop( List<PooledContainers> entries )
+    {
+        for( PooledContainers entry : entries ) {
+            LOG.debug( "Evicting pooled containers " + entry );
+            entry.stop();
+        }
+    }
+
+    /**
+     * Containers created for a single configuration, together with the system they live in.
+     */
+    public static class PooledContainers
+    {
+
+        final private String m_fingerprint;
+        final private ExamSystem m_system;
+        final private TestContainer[] m_containers;
+        private volatile long m_lastUsed;
+
+        PooledContainers( String fingerprint, ExamSystem system, TestContainer[] containers )
+        {
+            m_fingerprint = fingerprint;
+            m_system = system;
+            m_containers = containers;
+            m_lastUsed = System.currentTimeMillis();
+        }
+
+        public String getFingerprint()
+        {
+            return m_fingerprint;
+        }
+
+        public TestContainer[] getContainers()
+        {
+            return m_containers;
+        }
+
+        long getLastUsed()
+        {
+            return m_lastUsed;
+        }
+
+        void touch()
+        {
+            m_lastUsed = System.currentTimeMillis();
+        }
+
+        void stop()
+        {
+            for( TestContainer container : m_containers ) {
+                try {
+                    container.stop();
+                } catch( Exception e ) {
+                    LOG.warn( "Problem stopping pooled container " + container, e );
+                }
+            }
+            m_system.clear();
+        }
+
+        public String toString()
+        {
+            return "PooledContainers:fingerprint=" + m_fingerprint + ";containers=" + m_containers.length;
+        }
+    }
+}
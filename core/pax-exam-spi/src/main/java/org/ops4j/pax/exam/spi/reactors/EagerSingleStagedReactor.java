@@ -18,6 +18,8 @@
 package org.ops4j.pax.exam.spi.reactors;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Set;
@@ -28,7 +30,10 @@ import org.ops4j.pax.exam.TestContainer;
 import org.ops4j.pax.exam.TestContainerException;
 import org.ops4j.pax.exam.TestProbeProvider;
 import org.ops4j.pax.exam.spi.StagedExamReactor;
+import org.ops4j.pax.exam.spi.intern.ContainerReaper;
 import org.ops4j.pax.exam.spi.intern.DefaultTestAddress;
+import org.ops4j.pax.exam.spi.intern.ProbeInstaller;
+import org.ops4j.pax.exam.spi.intern.StagingExecutor;
 
 /**
  * One target only reactor implementation (simpliest and fastest)
@@ -40,6 +45,7 @@ public class EagerSingleStagedReactor implements StagedExamReactor {
     private static Logger LOG = LoggerFactory.getLogger( EagerSingleStagedReactor.class );
 
     final private List<TestContainer> m_targetContainer;
+    final private ContainerReaper m_reaper;
     final private LinkedHashMap<TestAddress, TestContainer> m_map;
 
     /**
@@ -48,21 +54,68 @@ public class EagerSingleStagedReactor implements StagedExamReactor {
      */
     public EagerSingleStagedReactor( List<TestContainer> containers, List<TestProbeProvider> mProbes )
     {
+        this( containers, mProbes, StagingExecutor.create() );
+    }
+
+    /**
+     * @param containers to be used
+     * @param mProbes    to be installed on all probes
+     * @param executor   used to start and provision the containers
+     */
+    public EagerSingleStagedReactor( List<TestContainer> containers, final List<TestProbeProvider> mProbes, StagingExecutor executor )
+    {
+        this( containers, mProbes, executor, ContainerReaper.getInstance() );
+    }
+
+    /**
+     * @param containers to be used
+     * @param mProbes    to be installed on all probes
+     * @param executor   used to start and provision the containers
+     * @param reaper     used to stop the containers on tearDown
+     */
+    public EagerSingleStagedReactor( List<TestContainer> containers, final List<TestProbeProvider> mProbes, StagingExecutor executor, ContainerReaper reaper )
+    {
+        m_reaper = reaper;
         m_map = new LinkedHashMap<TestAddress, TestContainer>();
         m_targetContainer = containers;
 
-        for( TestContainer container : containers ) {
-            container.start( );
-
-            for( TestProbeProvider builder : mProbes ) {
-                LOG.debug( "installing probe " + builder );
+        final List<TestContainer> started = Collections.synchronizedList( new ArrayList<TestContainer>() );
+        List<StagingExecutor.Task<Void>> tasks = new ArrayList<StagingExecutor.Task<Void>>();
+        for( final TestContainer container : containers ) {
+            tasks.add( new StagingExecutor.Task<Void>( container.toString() ) {
+                public Void call()
+                {
+                    container.start();
+                    started.add( container );
+                    for( TestProbeProvider builder : mProbes ) {
+                        LOG.debug( "installing probe {}", builder );
 
+                        try {
+                            ProbeInstaller.install( container, builder );
+                        } catch( IOException e ) {
+                            throw new TestContainerException( "Unable to build the probe.", e );
+                        }
+                    }
+                    return null;
+                }
+            } );
+        }
+        try {
+            executor.execute( tasks );
+        } catch( TestContainerException e ) {
+            // do not leave the healthy containers behind
+            for( TestContainer container : started ) {
                 try {
-                    container.install( builder.getStream() );
-                } catch( IOException e ) {
-                    throw new TestContainerException( "Unable to build the probe.", e );
+                    container.stop();
+                } catch( Exception stopFailure ) {
+                    LOG.warn( "Problem stopping " + container + " after failed staging.", stopFailure );
                 }
+            }
+            throw e;
+        }
 
+        for( TestContainer container : containers ) {
+            for( TestProbeProvider builder : mProbes ) {
                 // each probe has addresses.
                 for( TestAddress a : builder.getTests() ) {
                     // we need to create a new, because "a" exists for each test container
@@ -90,10 +143,13 @@ public class EagerSingleStagedReactor implements StagedExamReactor {
         return m_map.keySet();
     }
 
+    /**
+     * Hands the containers over to the reaper which (usually) stops them in background.
+     */
     public void tearDown()
     {
         for( TestContainer container : m_targetContainer ) {
-            container.stop();
+            m_reaper.stop( container );
         }
     }
 }
@@ -0,0 +1,392 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import static org.ops4j.pax.exam.OptionUtils.expand;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.ops4j.pax.exam.Option;
+import org.ops4j.pax.exam.ReusableTestContainer;
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestContainerException;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.options.ProvisionOption;
+import org.ops4j.pax.exam.spi.StagedConfiguration;
+import org.ops4j.pax.exam.spi.StagedExamReactor;
+import org.ops4j.pax.exam.spi.intern.ContainerReaper;
+import org.ops4j.pax.exam.spi.intern.DefaultTestAddress;
+import org.ops4j.pax.exam.spi.intern.OptionFingerprint;
+import org.ops4j.pax.exam.spi.intern.ProbeInstaller;
+import org.ops4j.pax.exam.spi.intern.StagingExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shares containers between consecutive configurations that differ in provisioned bundles only.
+ *
+ * Such configurations form a group. The group's container is started with the bundles common to all its
+ * configurations. Before the regressions of a configuration are invoked, its additional bundles and the probes are
+ * installed. They are uninstalled again when switching to the next configuration. Configurations that differ in
+ * anything else (like framework or system properties), or that provision bundles with custom start settings, get
+ * containers of their own. So do configurations whose containers are no {@link ReusableTestContainer} and
+ * configurations that differ in bundles which cannot be read by the driver (only "file:" and "http(s):" urls can).
+ *
+ * Targets are ordered by configuration, so when invoked in order each configuration is installed once.
+ */
+public class IncrementalStagedReactor implements StagedExamReactor {
+
+    private static Logger LOG = LoggerFactory.getLogger( IncrementalStagedReactor.class );
+
+    final private List<TestProbeProvider> m_probes;
+    final private List<Slot> m_slots;
+    final private LinkedHashMap<TestAddress, Target> m_map;
+
+    /**
+     * @param configurations configurations in the order given by the user
+     * @param probes         to be installed for each configuration
+     *
+     * @throws IOException if containers cannot be created
+     */
+    public IncrementalStagedReactor( List<StagedConfiguration> configurations, List<TestProbeProvider> probes )
+        throws IOException
+    {
+        m_probes = probes;
+        m_slots = new ArrayList<Slot>();
+        m_map = new LinkedHashMap<TestAddress, Target>();
+
+        final List<Slot> started = new ArrayList<Slot>();
+        List<StagingExecutor.Task<Void>> tasks = new ArrayList<StagingExecutor.Task<Void>>();
+        for( List<Member> group : group( configurations ) ) {
+            TestContainer[] containers = createContainers( group );
+            if( group.size() > 1 && !isReusable( containers ) ) {
+                LOG.debug( "Containers of configurations " + group.get( 0 ).index + " to " + ( group.get( 0 ).index + group.size() - 1 )
+                           + " cannot uninstall bundles. Each configuration gets containers of its own." );
+                for( List<Member> single : split( group ) ) {
+                    stage( single, createContainers( single ), tasks, started );
+                }
+            }
+            else {
+                stage( group, containers, tasks, started );
+            }
+        }
+        try {
+            StagingExecutor.create().execute( tasks );
+        } catch( TestContainerException e ) {
+            for( Slot slot : started ) {
+                ContainerReaper.getInstance().stop( slot.container );
+            }
+            throw e;
+        }
+    }
+
+    private static TestContainer[] createContainers( List<Member> group )
+        throws IOException
+    {
+        Member first = group.get( 0 );
+        return new StagedConfiguration( first.configuration.getSystem(), first.getBaseOptions(), first.configuration.getFactory() ).createContainers();
+    }
+
+    private static boolean isReusable( TestContainer[] containers )
+    {
+        for( TestContainer container : containers ) {
+            if( !( container instanceof ReusableTestContainer ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the targets of a group and a task for starting its containers.
+     */
+    private void stage( List<Member> group, TestContainer[] containers, List<StagingExecutor.Task<Void>> tasks, final List<Slot> started )
+    {
+        if( group.size() > 1 ) {
+            LOG.debug( "Configurations " + group.get( 0 ).index + " to " + ( group.get( 0 ).index + group.size() - 1 ) + " share a container." );
+        }
+        final List<Slot> slots = new ArrayList<Slot>();
+        for( TestContainer container : containers ) {
+            slots.add( new Slot( container ) );
+        }
+        m_slots.addAll( slots );
+        for( final Slot slot : slots ) {
+            tasks.add( new StagingExecutor.Task<Void>( slot.container.toString() ) {
+                public Void call()
+                {
+                    slot.container.start();
+                    synchronized( started ) {
+                        started.add( slot );
+                    }
+                    return null;
+                }
+            } );
+        }
+        for( Member member : group ) {
+            for( Slot slot : slots ) {
+                for( TestProbeProvider builder : m_probes ) {
+                    for( TestAddress a : builder.getTests() ) {
+                        m_map.put( new DefaultTestAddress( a, slot.container.toString() + "[" + member.index + "]" ), new Target( slot, member ) );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Groups consecutive configurations that can share a container.
+     */
+    private static List<List<Member>> group( List<StagedConfiguration> configurations )
+    {
+        List<List<Member>> groups = new ArrayList<List<Member>>();
+        List<Member> current = null;
+        for( int i = 0; i < configurations.size(); i++ ) {
+            Member member = new Member( i, configurations.get( i ) );
+            if( current != null && member.isIncremental() && current.get( 0 ).isIncremental()
+                && member.fingerprint != null && member.fingerprint.equals( current.get( 0 ).fingerprint ) ) {
+                current.add( member );
+            }
+            else {
+                current = new ArrayList<Member>();
+                current.add( member );
+                groups.add( current );
+            }
+        }
+        List<List<Member>> result = new ArrayList<List<Member>>();
+        for( List<Member> group : groups ) {
+            computeDelta( group );
+            if( group.size() > 1 && !isLocal( group ) ) {
+                LOG.debug( "Configurations " + group.get( 0 ).index + " to " + ( group.get( 0 ).index + group.size() - 1 )
+                           + " differ in bundles that only their container can resolve. Each configuration gets containers of its own." );
+                result.addAll( split( group ) );
+            }
+            else {
+                result.add( group );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return groups of one member each.
+     */
+    private static List<List<Member>> split( List<Member> group )
+    {
+        List<List<Member>> singles = new ArrayList<List<Member>>();
+        for( Member member : group ) {
+            List<Member> single = Collections.singletonList( member );
+            computeDelta( single );
+            singles.add( single );
+        }
+        return singles;
+    }
+
+    /**
+     * @return true if the bundles installed later can be read here. Other urls (like mvn: or wrap:) need handlers
+     *         that are usually available in the container only.
+     */
+    private static boolean isLocal( List<Member> group )
+    {
+        for( Member member : group ) {
+            for( ProvisionOption<?> bundle : member.delta ) {
+                String url = bundle.getURL();
+                if( !( url.startsWith( "file:" ) || url.startsWith( "http:" ) || url.startsWith( "https:" ) ) ) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Bundles every member of the group provisions are installed when the container starts, the others are installed
+     * when a member is activated.
+     */
+    private static void computeDelta( List<Member> group )
+    {
+        Set<String> common = new HashSet<String>( group.get( 0 ).provisions.keySet() );
+        for( Member member : group ) {
+            common.retainAll( member.provisions.keySet() );
+        }
+        for( Member member : group ) {
+            member.delta.clear();
+            for( String key : member.provisions.keySet() ) {
+                if( !common.contains( key ) ) {
+                    member.delta.add( member.provisions.get( key ) );
+                }
+            }
+        }
+    }
+
+    public void invoke( TestAddress address )
+        throws Exception
+    {
+        assert ( address != null ) : "TestAddress must not be null.";
+
+        Target target = m_map.get( address );
+        if( target == null ) {
+            throw new IllegalArgumentException( "TestAddress " + address + " not from this reactor? Got it from getTargets() really?" );
+        }
+        synchronized( target.slot ) {
+            target.slot.activate( target.member );
+            target.slot.container.call( address );
+        }
+    }
+
+    public Set<TestAddress> getTargets()
+    {
+        return m_map.keySet();
+    }
+
+    public void tearDown()
+    {
+        for( Slot slot : m_slots ) {
+            ContainerReaper.getInstance().stop( slot.container );
+        }
+    }
+
+    /**
+     * A single configuration of a group.
+     */
+    private static class Member {
+
+        final int index;
+        final StagedConfiguration configuration;
+        final String fingerprint;
+        final LinkedHashMap<String, ProvisionOption<?>> provisions = new LinkedHashMap<String, ProvisionOption<?>>();
+        final List<ProvisionOption<?>> delta = new ArrayList<ProvisionOption<?>>();
+        final Option[] options;
+
+        Member( int index, StagedConfiguration configuration )
+        {
+            this.index = index;
+            this.configuration = configuration;
+            this.options = expand( configuration.getOptions() );
+            List<Option> rest = new ArrayList<Option>();
+            for( Option option : configuration.getCombinedOptions() ) {
+                if( !( option instanceof ProvisionOption ) ) {
+                    rest.add( option );
+                }
+            }
+            String fingerprint = OptionFingerprint.compute( rest.toArray( new Option[rest.size()] ), configuration.getFactory().getClass().getName() );
+            for( Option option : options ) {
+                if( option instanceof ProvisionOption ) {
+                    String description = OptionFingerprint.describe( option );
+                    if( description == null ) {
+                        // bundles of unknown types cannot be compared, so the configuration is not shared.
+                        fingerprint = null;
+                        description = option.getClass().getName() + "@" + System.identityHashCode( option );
+                    }
+                    provisions.put( description, (ProvisionOption<?>) option );
+                }
+            }
+            this.fingerprint = fingerprint;
+        }
+
+        /**
+         * @return true if all own bundles could be installed later using {@link TestContainer#install(String, java.io.InputStream)}.
+         */
+        boolean isIncremental()
+        {
+            for( ProvisionOption<?> option : provisions.values() ) {
+                if( !option.shouldStart() || option.getStartLevel() != null ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return own options without the bundles to be installed later.
+         */
+        Option[] getBaseOptions()
+        {
+            List<Option> base = new ArrayList<Option>();
+            for( Option option : options ) {
+                if( !delta.contains( option ) ) {
+                    base.add( option );
+                }
+            }
+            return base.toArray( new Option[base.size()] );
+        }
+    }
+
+    /**
+     * A running container and the configuration currently installed on it.
+     */
+    private class Slot {
+
+        final TestContainer container;
+        final List<Long> installed = new ArrayList<Long>();
+        Member active;
+
+        Slot( TestContainer container )
+        {
+            this.container = container;
+        }
+
+        void activate( Member member )
+            throws IOException
+        {
+            if( active == member ) {
+                return;
+            }
+            // only containers shared by several configurations get here with bundles installed, those are reusable.
+            for( int i = installed.size() - 1; i >= 0; i-- ) {
+                ( (ReusableTestContainer) container ).uninstall( installed.get( i ) );
+            }
+            installed.clear();
+            active = null;
+            for( ProvisionOption<?> bundle : member.delta ) {
+                LOG.debug( "+ Install (incremental) " + bundle.getURL() );
+                InputStream in = new URL( bundle.getURL() ).openStream();
+                try {
+                    installed.add( container.install( bundle.getURL(), in ) );
+                } finally {
+                    in.close();
+                }
+            }
+            for( TestProbeProvider builder : m_probes ) {
+                installed.add( ProbeInstaller.install( container, builder ) );
+            }
+            active = member;
+        }
+    }
+
+    /**
+     * Where to invoke a target.
+     */
+    private static class Target {
+
+        final Slot slot;
+        final Member member;
+
+        Target( Slot slot, Member member )
+        {
+            this.slot = slot;
+            this.member = member;
+        }
+    }
+}
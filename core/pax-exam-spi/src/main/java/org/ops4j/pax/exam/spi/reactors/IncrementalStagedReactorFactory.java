@@ -0,0 +1,47 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.spi.ConfigurationAwareStagedReactorFactory;
+import org.ops4j.pax.exam.spi.StagedConfiguration;
+import org.ops4j.pax.exam.spi.StagedExamReactor;
+
+/**
+ * Shares a container between consecutive configurations that differ in provisioned bundles only. Only the different
+ * bundles are installed and uninstalled when switching configurations.
+ *
+ * Use it with {@code @ExamReactorStrategy( IncrementalStagedReactorFactory.class )}.
+ */
+public class IncrementalStagedReactorFactory implements ConfigurationAwareStagedReactorFactory
+{
+
+    public StagedExamReactor create( List<TestContainer> containers, List<TestProbeProvider> mProbes )
+    {
+        // containers have been created by someone else, there is nothing to share.
+        return new EagerSingleStagedReactor( containers, mProbes );
+    }
+
+    public StagedExamReactor createFromConfigurations( List<StagedConfiguration> configurations, List<TestProbeProvider> probes )
+        throws IOException
+    {
+        return new IncrementalStagedReactor( configurations, probes );
+    }
+}
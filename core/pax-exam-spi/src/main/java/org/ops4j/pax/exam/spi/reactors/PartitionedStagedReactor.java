@@ -0,0 +1,230 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestContainerException;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.spi.ParallelStagedExamReactor;
+import org.ops4j.pax.exam.spi.StagedConfiguration;
+import org.ops4j.pax.exam.spi.intern.DefaultTestAddress;
+import org.ops4j.pax.exam.spi.intern.ProbeInstaller;
+import org.ops4j.pax.exam.spi.intern.StagingExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Starts several identical containers (clones) per configuration and spreads the targets across them.
+ *
+ * Each target has an owning clone (assigned round robin). When the owner is busy, the target is stolen by any idle
+ * clone of the same configuration which then becomes the new owner. Targets are only run in parallel if the driver
+ * invokes them concurrently (see {@link ParallelStagedExamReactor}).
+ */
+public class PartitionedStagedReactor implements ParallelStagedExamReactor {
+
+    private static Logger LOG = LoggerFactory.getLogger( PartitionedStagedReactor.class );
+
+    final private List<TestContainer> m_containers;
+    final private LinkedHashMap<TestAddress, Slot> m_map;
+
+    /**
+     * @param configurations configurations to be cloned
+     * @param probes         to be installed on all clones
+     * @param partitions     number of clones per configuration
+     *
+     * @throws IOException if clones cannot be created
+     */
+    public PartitionedStagedReactor( List<StagedConfiguration> configurations, List<TestProbeProvider> probes, int partitions )
+        throws IOException
+    {
+        this( configurations, probes, partitions, new StagingExecutor( Math.max( partitions, StagingExecutor.create().getThreads() ) ) );
+    }
+
+    /**
+     * @param configurations configurations to be cloned
+     * @param probes         to be installed on all clones
+     * @param partitions     number of clones per configuration
+     * @param executor       used to start and provision the clones
+     *
+     * @throws IOException if clones cannot be created
+     */
+    public PartitionedStagedReactor( List<StagedConfiguration> configurations, final List<TestProbeProvider> probes, int partitions, StagingExecutor executor )
+        throws IOException
+    {
+        m_containers = new ArrayList<TestContainer>();
+        m_map = new LinkedHashMap<TestAddress, Slot>();
+
+        List<Clone[]> groups = new ArrayList<Clone[]>();
+        for( StagedConfiguration configuration : configurations ) {
+            List<TestContainer[]> created = new ArrayList<TestContainer[]>();
+            for( int i = 0; i < Math.max( 1, partitions ); i++ ) {
+                created.add( configuration.createContainers() );
+            }
+            // each factory call may give more than one container. Clones are the containers at the same position.
+            for( int c = 0; c < created.get( 0 ).length; c++ ) {
+                Clone[] group = new Clone[created.size()];
+                for( int i = 0; i < group.length; i++ ) {
+                    group[ i ] = new Clone( created.get( i )[ c ] );
+                    m_containers.add( group[ i ].container );
+                }
+                groups.add( group );
+            }
+        }
+
+        stage( probes, executor );
+
+        for( Clone[] group : groups ) {
+            int next = 0;
+            String caption = group[ 0 ].container.toString();
+            for( TestProbeProvider builder : probes ) {
+                for( TestAddress a : builder.getTests() ) {
+                    m_map.put( new DefaultTestAddress( a, caption ), new Slot( group, group[ next++ % group.length ] ) );
+                }
+            }
+        }
+    }
+
+    private void stage( final List<TestProbeProvider> probes, StagingExecutor executor )
+    {
+        final List<TestContainer> started = Collections.synchronizedList( new ArrayList<TestContainer>() );
+        List<StagingExecutor.Task<Void>> tasks = new ArrayList<StagingExecutor.Task<Void>>();
+        for( final TestContainer container : m_containers ) {
+            tasks.add( new StagingExecutor.Task<Void>( container.toString() ) {
+                public Void call()
+                    throws IOException
+                {
+                    container.start();
+                    started.add( container );
+                    for( TestProbeProvider builder : probes ) {
+                        LOG.debug( "installing probe {}", builder );
+                        ProbeInstaller.install( container, builder );
+                    }
+                    return null;
+                }
+            } );
+        }
+        try {
+            executor.execute( tasks );
+        } catch( TestContainerException e ) {
+            stop( started );
+            throw e;
+        }
+    }
+
+    public void invoke( TestAddress address )
+        throws Exception
+    {
+        assert ( address != null ) : "TestAddress must not be null.";
+
+        Slot slot = m_map.get( address );
+        if( slot == null ) {
+            throw new IllegalArgumentException( "TestAddress " + address + " not from this reactor? Got it from getTargets() really?" );
+        }
+        Clone clone = slot.acquire();
+        try {
+            clone.container.call( address );
+        } finally {
+            clone.lock.unlock();
+        }
+    }
+
+    public Set<TestAddress> getTargets()
+    {
+        return m_map.keySet();
+    }
+
+    /**
+     * @return number of all clones.
+     */
+    public int getParallelism()
+    {
+        return m_containers.size();
+    }
+
+    public void tearDown()
+    {
+        stop( m_containers );
+    }
+
+    private void stop( List<TestContainer> containers )
+    {
+        for( TestContainer container : containers ) {
+            try {
+                container.stop();
+            } catch( Exception e ) {
+                LOG.warn( "Problem stopping " + container, e );
+            }
+        }
+    }
+
+    /**
+     * A single container that runs one target at a time.
+     */
+    private static class Clone {
+
+        final TestContainer container;
+        final ReentrantLock lock = new ReentrantLock();
+
+        Clone( TestContainer container )
+        {
+            this.container = container;
+        }
+    }
+
+    /**
+     * A target and the clone currently owning it.
+     */
+    private static class Slot {
+
+        final private List<Clone> m_group;
+        private volatile Clone m_owner;
+
+        Slot( Clone[] group, Clone owner )
+        {
+            m_group = Arrays.asList( group );
+            m_owner = owner;
+        }
+
+        /**
+         * @return a locked clone. Prefers the owner, steals when owner is busy, waits for the owner if all are busy.
+         */
+        Clone acquire()
+        {
+            Clone owner = m_owner;
+            if( owner.lock.tryLock() ) {
+                return owner;
+            }
+            for( Clone clone : m_group ) {
+                if( clone.lock.tryLock() ) {
+                    m_owner = clone;
+                    return clone;
+                }
+            }
+            owner.lock.lock();
+            return owner;
+        }
+    }
+}
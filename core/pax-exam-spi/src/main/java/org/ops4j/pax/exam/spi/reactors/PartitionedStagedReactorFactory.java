@@ -0,0 +1,52 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.ops4j.pax.exam.ConfigurationManager;
+import org.ops4j.pax.exam.Constants;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.spi.ConfigurationAwareStagedReactorFactory;
+import org.ops4j.pax.exam.spi.StagedConfiguration;
+import org.ops4j.pax.exam.spi.StagedExamReactor;
+
+/**
+ * Runs the tests of a class in parallel on several identical containers per configuration.
+ * The number of containers is taken from {@link Constants#EXAM_REACTOR_PARTITIONS_KEY} and defaults to the number of
+ * available processors.
+ *
+ * Use it with {@code @ExamReactorStrategy( PartitionedStagedReactorFactory.class )}.
+ * Tests must be independent of each other as they may run at the same time in different containers.
+ */
+public class PartitionedStagedReactorFactory implements ConfigurationAwareStagedReactorFactory
+{
+
+    public StagedExamReactor create( List<TestContainer> containers, List<TestProbeProvider> mProbes )
+    {
+        // containers have been created by someone else, there is nothing to clone.
+        return new EagerSingleStagedReactor( containers, mProbes );
+    }
+
+    public StagedExamReactor createFromConfigurations( List<StagedConfiguration> configurations, List<TestProbeProvider> probes )
+        throws IOException
+    {
+        int partitions = new ConfigurationManager().getIntProperty( Constants.EXAM_REACTOR_PARTITIONS_KEY, Runtime.getRuntime().availableProcessors() );
+        return new PartitionedStagedReactor( configurations, probes, partitions );
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.ops4j.pax.exam.ReusableTestContainer;
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestContainerException;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.spi.StagedConfiguration;
+import org.ops4j.pax.exam.spi.StagedExamReactor;
+import org.ops4j.pax.exam.spi.intern.DefaultTestAddress;
+import org.ops4j.pax.exam.spi.intern.ProbeInstaller;
+import org.ops4j.pax.exam.spi.intern.StagingExecutor;
+import org.ops4j.pax.exam.spi.reactors.ContainerPool.PooledContainers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Like {@link EagerSingleStagedReactor} but containers are taken from (and given back to) a {@link ContainerPool}.
+ * Only the probes are installed when staging and uninstalled again on tearDown. Containers that are not a
+ * {@link ReusableTestContainer} are stopped on tearDown instead.
+ */
+public class PooledStagedReactor implements StagedExamReactor {
+
+    private static Logger LOG = LoggerFactory.getLogger( PooledStagedReactor.class );
+
+    final private ContainerPool m_pool;
+    final private List<PooledContainers> m_leases;
+    final private Map<TestContainer, List<Long>> m_installed;
+    final private LinkedHashMap<TestAddress, TestContainer> m_map;
+
+    /**
+     * @param configurations configurations to get containers for
+     * @param probes         to be installed on all containers
+     * @param pool           pool to take containers from
+     */
+    public PooledStagedReactor( List<StagedConfiguration> configurations, final List<TestProbeProvider> probes, final ContainerPool pool )
+    {
+        m_pool = pool;
+        m_leases = Collections.synchronizedList( new ArrayList<PooledContainers>() );
+        m_installed = Collections.synchronizedMap( new LinkedHashMap<TestContainer, List<Long>>() );
+        m_map = new LinkedHashMap<TestAddress, TestContainer>();
+
+        List<StagingExecutor.Task<PooledContainers>> tasks = new ArrayList<StagingExecutor.Task<PooledContainers>>();
+        for( final StagedConfiguration configuration : configurations ) {
+            tasks.add( new StagingExecutor.Task<PooledContainers>( configuration.toString() ) {
+                public PooledContainers call()
+                    throws IOException
+                {
+                    PooledContainers lease = pool.acquire( configuration );
+                    m_leases.add( lease );
+                    for( TestContainer container : lease.getContainers() ) {
+                        List<Long> ids = new ArrayList<Long>();
+                        m_installed.put( container, ids );
+                        for( TestProbeProvider builder : probes ) {
+                            LOG.debug( "installing probe {}", builder );
+                            ids.add( ProbeInstaller.install( container, builder ) );
+                        }
+                    }
+                    return lease;
+                }
+            } );
+        }
+        List<PooledContainers> leases;
+        try {
+            leases = StagingExecutor.create().execute( tasks );
+        } catch( TestContainerException e ) {
+            // give back what we got so far
+            tearDown();
+            throw e;
+        }
+
+        for( PooledContainers lease : leases ) {
+            for( TestContainer container : lease.getContainers() ) {
+                for( TestProbeProvider builder : probes ) {
+                    for( TestAddress a : builder.getTests() ) {
+                        m_map.put( new DefaultTestAddress( a, container.toString() ), container );
+                    }
+                }
+            }
+        }
+    }
+
+    public void invoke( TestAddress address )
+        throws Exception
+    {
+        assert ( address != null ) : "TestAddress must not be null.";
+
+        TestContainer testContainer = m_map.get( address );
+        if( testContainer == null ) {
+            throw new IllegalArgumentException( "TestAddress " + address + " not from this reactor? Got it from getTargets() really?" );
+        }
+        testContainer.call( address );
+    }
+
+    public Set<TestAddress> getTargets()
+    {
+        return m_map.keySet();
+    }
+
+    /**
+     * Uninstalls the probes and gives the containers back to the pool. Containers that cannot be cleaned up are
+     * discarded.
+     */
+    public void tearDown()
+    {
+        synchronized( m_leases ) {
+            for( PooledContainers lease : m_leases ) {
+                if( !isReusable( lease ) ) {
+                    LOG.debug( lease + " cannot uninstall probes. It will not be reused." );
+                    m_installed.keySet().removeAll( Arrays.asList( lease.getContainers() ) );
+                    m_pool.discard( lease );
+                    continue;
+                }
+                try {
+                    for( TestContainer container : lease.getContainers() ) {
+                        List<Long> ids = m_installed.remove( container );
+                        if( ids != null ) {
+                            for( int i = ids.size() - 1; i >= 0; i-- ) {
+                                ( (ReusableTestContainer) container ).uninstall( ids.get( i ) );
+                            }
+                        }
+                    }
+                    m_pool.release( lease );
+                } catch( RuntimeException e ) {
+                    LOG.warn( "Unable to clean up " + lease + ". It will not be reused.", e );
+                    m_pool.discard( lease );
+                }
+            }
+            m_leases.clear();
+        }
+    }
+
+    private static boolean isReusable( PooledContainers lease )
+    {
+        for( TestContainer container : lease.getContainers() ) {
+            if( !( container instanceof ReusableTestContainer ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
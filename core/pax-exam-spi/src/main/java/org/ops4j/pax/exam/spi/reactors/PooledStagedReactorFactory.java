@@ -0,0 +1,45 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import java.util.List;
+
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.spi.ConfigurationAwareStagedReactorFactory;
+import org.ops4j.pax.exam.spi.StagedConfiguration;
+import org.ops4j.pax.exam.spi.StagedExamReactor;
+
+/**
+ * Reuses started containers across test classes of the same JVM if their configurations are equal.
+ * Use it with {@code @ExamReactorStrategy( PooledStagedReactorFactory.class )}.
+ *
+ * Tests must not leave any state (like services or configurations) in the container other than their probe.
+ */
+public class PooledStagedReactorFactory implements ConfigurationAwareStagedReactorFactory
+{
+
+    public StagedExamReactor create( List<TestContainer> containers, List<TestProbeProvider> mProbes )
+    {
+        // containers have been created by someone else, there is nothing to pool.
+        return new EagerSingleStagedReactor( containers, mProbes );
+    }
+
+    public StagedExamReactor createFromConfigurations( List<StagedConfiguration> configurations, List<TestProbeProvider> probes )
+    {
+        return new PooledStagedReactor( configurations, probes, ContainerPool.getInstance() );
+    }
+}
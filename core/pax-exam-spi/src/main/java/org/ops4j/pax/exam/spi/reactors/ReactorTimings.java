@@ -0,0 +1,183 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.Properties;
+
+import org.ops4j.pax.exam.spi.intern.TimedTestContainer.Sample;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Start and test costs recorded in former runs, stored as properties file in the config folder of the exam system.
+ *
+ * New samples are merged into the recorded values with equal weight, so the estimates follow changes of the code
+ * without jumping on a single slow run.
+ *
+ * Several JVMs may share the file (parallel forks, builds sharing a home folder). Recording holds a lock on a file
+ * next to it while merging, and the merged values are written to a temporary file that replaces the old one, so
+ * readers never see a partly written file.
+ */
+public class ReactorTimings {
+
+    private static final Logger LOG = LoggerFactory.getLogger( ReactorTimings.class );
+
+    public static final String FILE_NAME = "reactor-timings.properties";
+
+    // file locks are held by the JVM, threads of one JVM are kept apart by this monitor.
+    private static final Object LOCK = new Object();
+
+    final private File m_file;
+
+    /**
+     * @param folder folder to keep the timings file in (usually {@link org.ops4j.pax.exam.ExamSystem#getConfigFolder()})
+     */
+    public ReactorTimings( File folder )
+    {
+        m_file = new File( folder, FILE_NAME );
+    }
+
+    /**
+     * @param key class and configuration
+     *
+     * @return recorded costs (start, test) in milliseconds or null if nothing has been recorded.
+     */
+    public long[] get( String key )
+    {
+        Properties p = load();
+        String start = p.getProperty( key + ".start" );
+        String test = p.getProperty( key + ".test" );
+        if( start == null || test == null ) {
+            return null;
+        }
+        try {
+            return new long[]{ Long.parseLong( start ), Long.parseLong( test ) };
+        } catch( NumberFormatException e ) {
+            return null;
+        }
+    }
+
+    /**
+     * Merges the sample into the recorded values and stores them.
+     *
+     * @param key    class and configuration
+     * @param sample timings of the latest run
+     */
+    public void record( String key, Sample sample )
+    {
+        if( sample.getStartCost() < 0 || sample.getTestCost() < 0 ) {
+            return;
+        }
+        synchronized( LOCK ) {
+            m_file.getParentFile().mkdirs();
+            RandomAccessFile lockFile = null;
+            FileLock lock = null;
+            try {
+                lockFile = new RandomAccessFile( new File( m_file.getParentFile(), FILE_NAME + ".lock" ), "rw" );
+                lock = lockFile.getChannel().lock();
+                // re-read, other JVMs may have written meanwhile.
+                Properties p = load();
+                p.setProperty( key + ".start", Long.toString( merge( p.getProperty( key + ".start" ), sample.getStartCost() ) ) );
+                p.setProperty( key + ".test", Long.toString( merge( p.getProperty( key + ".test" ), sample.getTestCost() ) ) );
+                store( p );
+            } catch( IOException e ) {
+                LOG.warn( "Unable to lock " + m_file, e );
+            } finally {
+                if( lock != null ) {
+                    try {
+                        lock.release();
+                    } catch( IOException e ) {
+                        // closing the file releases it anyway
+                    }
+                }
+                close( lockFile );
+            }
+        }
+    }
+
+    private long merge( String recorded, long measured )
+    {
+        if( recorded == null ) {
+            return measured;
+        }
+        try {
+            return ( Long.parseLong( recorded ) + measured ) / 2;
+        } catch( NumberFormatException e ) {
+            return measured;
+        }
+    }
+
+    private Properties load()
+    {
+        Properties p = new Properties();
+        if( m_file.exists() ) {
+            InputStream in = null;
+            try {
+                in = new FileInputStream( m_file );
+                p.load( in );
+            } catch( IOException e ) {
+                LOG.warn( "Unable to read " + m_file, e );
+            } finally {
+                close( in );
+            }
+        }
+        return p;
+    }
+
+    private void store( Properties p )
+    {
+        File temp = null;
+        OutputStream out = null;
+        try {
+            temp = File.createTempFile( FILE_NAME, ".tmp", m_file.getParentFile() );
+            out = new FileOutputStream( temp );
+            p.store( out, "Pax Exam reactor timings (milliseconds)" );
+            out.close();
+            out = null;
+            // renaming onto an existing file fails on some platforms
+            if( !temp.renameTo( m_file ) && !( m_file.delete() && temp.renameTo( m_file ) ) ) {
+                throw new IOException( "Unable to replace " + m_file + " with " + temp );
+            }
+            temp = null;
+        } catch( IOException e ) {
+            LOG.warn( "Unable to write " + m_file, e );
+        } finally {
+            close( out );
+            if( temp != null ) {
+                temp.delete();
+            }
+        }
+    }
+
+    private static void close( java.io.Closeable c )
+    {
+        if( c != null ) {
+            try {
+                c.close();
+            } catch( IOException e ) {
+                // ignore
+            }
+        }
+    }
+}
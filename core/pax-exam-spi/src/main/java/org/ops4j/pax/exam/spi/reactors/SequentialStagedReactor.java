@@ -0,0 +1,178 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestContainerException;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.spi.StagedExamReactor;
+import org.ops4j.pax.exam.spi.intern.ContainerReaper;
+import org.ops4j.pax.exam.spi.intern.DefaultTestAddress;
+import org.ops4j.pax.exam.spi.intern.ProbeInstaller;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Like {@link EagerSingleStagedReactor} (one container per configuration for all regressions) but containers are
+ * started lazily: a container is started when the first of its targets is invoked and stopped after its last
+ * target has run. Targets are ordered by container, so when invoked in order only one container runs at a time.
+ *
+ * A container that has run its last target is stopped before the next target is invoked. Containers still running
+ * when the reactor is torn down are handed over to the {@link ContainerReaper}.
+ */
+public class SequentialStagedReactor implements StagedExamReactor {
+
+    private static Logger LOG = LoggerFactory.getLogger( SequentialStagedReactor.class );
+
+    final private List<TestProbeProvider> m_probes;
+    final private ContainerReaper m_reaper;
+    final private LinkedHashMap<TestAddress, TestContainer> m_map;
+    final private Map<TestContainer, Lifecycle> m_lifecycles;
+
+    /**
+     * @param containers to be used
+     * @param mProbes    to be installed on all containers
+     */
+    public SequentialStagedReactor( List<TestContainer> containers, List<TestProbeProvider> mProbes )
+    {
+        this( containers, mProbes, ContainerReaper.getInstance() );
+    }
+
+    /**
+     * @param containers to be used
+     * @param mProbes    to be installed on all containers
+     * @param reaper     used to stop containers
+     */
+    public SequentialStagedReactor( List<TestContainer> containers, List<TestProbeProvider> mProbes, ContainerReaper reaper )
+    {
+        m_probes = mProbes;
+        m_reaper = reaper;
+        m_map = new LinkedHashMap<TestAddress, TestContainer>();
+        m_lifecycles = new HashMap<TestContainer, Lifecycle>();
+
+        for( TestContainer container : containers ) {
+            int count = 0;
+            for( TestProbeProvider builder : mProbes ) {
+                for( TestAddress a : builder.getTests() ) {
+                    m_map.put( new DefaultTestAddress( a, container.toString() ), container );
+                    count++;
+                }
+            }
+            m_lifecycles.put( container, new Lifecycle( count ) );
+        }
+    }
+
+    public void invoke( TestAddress address )
+        throws Exception
+    {
+        assert ( address != null ) : "TestAddress must not be null.";
+
+        TestContainer container = m_map.get( address );
+        if( container == null ) {
+            throw new IllegalArgumentException( "TestAddress " + address + " not from this reactor? Got it from getTargets() really?" );
+        }
+        Lifecycle lifecycle = m_lifecycles.get( container );
+        try {
+            lifecycle.ensureStarted( container );
+            container.call( address );
+        } finally {
+            lifecycle.done( container );
+        }
+    }
+
+    public Set<TestAddress> getTargets()
+    {
+        return m_map.keySet();
+    }
+
+    /**
+     * Stops containers that are still running (if not all of their targets have been invoked).
+     */
+    public void tearDown()
+    {
+        for( Map.Entry<TestContainer, Lifecycle> entry : m_lifecycles.entrySet() ) {
+            entry.getValue().stop( entry.getKey() );
+        }
+    }
+
+    /**
+     * Start state and remaining targets of a single container.
+     */
+    private class Lifecycle {
+
+        private int m_remaining;
+        private boolean m_started;
+        private RuntimeException m_failure;
+
+        Lifecycle( int remaining )
+        {
+            m_remaining = remaining;
+        }
+
+        synchronized void ensureStarted( TestContainer container )
+            throws Exception
+        {
+            if( m_failure != null ) {
+                // do not try to boot a broken configuration again for each target.
+                throw m_failure;
+            }
+            if( !m_started ) {
+                LOG.debug( "Starting " + container + " for " + m_remaining + " targets." );
+                try {
+                    container.start();
+                    m_started = true;
+                    for( TestProbeProvider builder : m_probes ) {
+                        ProbeInstaller.install( container, builder );
+                    }
+                } catch( RuntimeException e ) {
+                    m_failure = e;
+                    throw e;
+                } catch( Exception e ) {
+                    m_failure = new TestContainerException( "Unable to stage " + container, e );
+                    throw m_failure;
+                }
+            }
+        }
+
+        synchronized void done( TestContainer container )
+        {
+            if( --m_remaining == 0 && m_started ) {
+                // stop right away, so the next container does not start before this one is gone.
+                m_started = false;
+                try {
+                    container.stop();
+                } catch( Exception e ) {
+                    LOG.warn( "Problem stopping " + container, e );
+                }
+            }
+        }
+
+        synchronized void stop( TestContainer container )
+        {
+            if( m_started ) {
+                m_started = false;
+                m_reaper.stop( container );
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import static org.ops4j.pax.exam.CoreOptions.cleanCaches;
+import static org.ops4j.pax.exam.CoreOptions.workingDirectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.ops4j.io.FileUtils;
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.spi.StagedConfiguration;
+import org.ops4j.pax.exam.spi.StagedExamReactor;
+import org.ops4j.pax.exam.spi.intern.DefaultTestAddress;
+import org.ops4j.pax.exam.spi.intern.ProbeInstaller;
+import org.ops4j.pax.exam.spi.intern.StagingExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.Files;
+
+/**
+ * Confined like {@link AllConfinedStagedReactor} (a fresh container for any regression) but without paying for
+ * provisioning each time.
+ *
+ * When staging, a template container is started (which installs all provisioned bundles) and stopped again per
+ * configuration. Its framework storage is kept as snapshot. Each regression then gets a new container started from
+ * a copy of that snapshot. This works for containers that keep the framework storage in the working directory of
+ * their system (native and forked do). Configurations that create more than one container are run without snapshot.
+ */
+public class SnapshotConfinedStagedReactor implements StagedExamReactor {
+
+    private static Logger LOG = LoggerFactory.getLogger( SnapshotConfinedStagedReactor.class );
+
+    final private List<TestProbeProvider> m_probes;
+    final private List<Snapshot> m_snapshots;
+    final private LinkedHashMap<TestAddress, Snapshot> m_map;
+
+    /**
+     * @param configurations configurations to be snapshotted
+     * @param probes         probes to be installed
+     */
+    public SnapshotConfinedStagedReactor( List<StagedConfiguration> configurations, List<TestProbeProvider> probes )
+    {
+        m_probes = probes;
+        m_snapshots = new ArrayList<Snapshot>();
+        m_map = new LinkedHashMap<TestAddress, Snapshot>();
+
+        List<StagingExecutor.Task<Snapshot>> tasks = new ArrayList<StagingExecutor.Task<Snapshot>>();
+        for( final StagedConfiguration configuration : configurations ) {
+            tasks.add( new StagingExecutor.Task<Snapshot>( configuration.toString() ) {
+                public Snapshot call()
+                    throws IOException
+                {
+                    return createSnapshot( configuration );
+                }
+            } );
+        }
+        m_snapshots.addAll( StagingExecutor.create().execute( tasks ) );
+
+        for( Snapshot snapshot : m_snapshots ) {
+            for( TestProbeProvider builder : m_probes ) {
+                for( TestAddress a : builder.getTests() ) {
+                    m_map.put( new DefaultTestAddress( a, snapshot.caption ), snapshot );
+                }
+            }
+        }
+    }
+
+    private Snapshot createSnapshot( StagedConfiguration configuration )
+        throws IOException
+    {
+        File directory = new File( configuration.getSystem().getTempFolder(), "snapshot-" + UUID.randomUUID() );
+        TestContainer[] templates = configuration.createContainers( workingDirectory( directory.getAbsolutePath() ), cleanCaches( false ) );
+        if( templates.length != 1 ) {
+            LOG.info( "Configuration creates " + templates.length + " containers. Running it without snapshot." );
+            FileUtils.delete( directory );
+            return new Snapshot( configuration, null, templates.length == 0 ? configuration.toString() : templates[ 0 ].toString() );
+        }
+        long start = System.currentTimeMillis();
+        templates[ 0 ].start();
+        templates[ 0 ].stop();
+        LOG.debug( "Created snapshot of " + templates[ 0 ] + " in " + ( System.currentTimeMillis() - start ) + " ms." );
+        return new Snapshot( configuration, directory, templates[ 0 ].toString() );
+    }
+
+    public void invoke( TestAddress address )
+        throws Exception
+    {
+        assert ( address != null ) : "TestAddress must not be null.";
+        Snapshot snapshot = m_map.get( address );
+        if( snapshot == null ) {
+            throw new IllegalArgumentException( "TestAddress " + address + " not from this reactor? Got it from getTargets() really?" );
+        }
+        if( snapshot.directory == null ) {
+            for( TestContainer container : snapshot.configuration.createContainers() ) {
+                run( container, address );
+            }
+        }
+        else {
+            File copy = new File( snapshot.directory.getParentFile(), "clone-" + UUID.randomUUID() );
+            try {
+                copyDirectory( snapshot.directory, copy );
+                TestContainer[] containers = snapshot.configuration.createContainers( workingDirectory( copy.getAbsolutePath() ), cleanCaches( false ) );
+                run( containers[ 0 ], address );
+            } finally {
+                FileUtils.delete( copy );
+            }
+        }
+    }
+
+    private void run( TestContainer container, TestAddress address )
+        throws IOException
+    {
+        container.start();
+        try {
+            for( TestProbeProvider builder : m_probes ) {
+                ProbeInstaller.install( container, builder );
+            }
+            container.call( address );
+        } finally {
+            container.stop();
+        }
+    }
+
+    private static void copyDirectory( File source, File target )
+        throws IOException
+    {
+        target.mkdirs();
+        String[] names = source.list();
+        if( names == null ) {
+            // nothing has been stored. The clone will just start from scratch.
+            return;
+        }
+        for( String name : names ) {
+            File from = new File( source, name );
+            File to = new File( target, name );
+            if( from.isDirectory() ) {
+                copyDirectory( from, to );
+            }
+            else {
+                Files.copy( from, to );
+            }
+        }
+    }
+
+    public Set<TestAddress> getTargets()
+    {
+        return m_map.keySet();
+    }
+
+    public void tearDown()
+    {
+        for( Snapshot snapshot : m_snapshots ) {
+            if( snapshot.directory != null ) {
+                FileUtils.delete( snapshot.directory );
+            }
+        }
+    }
+
+    /**
+     * Framework storage of a provisioned but stopped template container.
+     */
+    private static class Snapshot {
+
+        final StagedConfiguration configuration;
+        final File directory;
+        final String caption;
+
+        Snapshot( StagedConfiguration configuration, File directory, String caption )
+        {
+            this.configuration = configuration;
+            this.directory = directory;
+            this.caption = caption;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi;
+
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.ops4j.pax.exam.CoreOptions.options;
+
+import org.junit.Test;
+import org.ops4j.pax.exam.ExamSystem;
+import org.ops4j.pax.exam.Option;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestContainerException;
+import org.ops4j.pax.exam.TestContainerFactory;
+import org.ops4j.pax.exam.spi.reactors.EagerSingleStagedReactorFactory;
+
+/**
+ *
+ */
+public class DefaultExamReactorTest {
+
+    @Test
+    public void testSystemsAreClearedIfAConfigurationFails()
+        throws Exception
+    {
+        ExamSystem healthy = mock( ExamSystem.class );
+        ExamSystem broken = mock( ExamSystem.class );
+        ExamSystem system = mock( ExamSystem.class );
+        when( system.fork( any( Option[].class ) ) ).thenReturn( healthy, broken );
+        TestContainer container = mock( TestContainer.class );
+        TestContainerFactory factory = mock( TestContainerFactory.class );
+        when( factory.create( healthy ) ).thenReturn( new TestContainer[]{ container } );
+        when( factory.create( broken ) ).thenThrow( new TestContainerException( "broken" ) );
+
+        DefaultExamReactor reactor = new DefaultExamReactor( system, factory );
+        reactor.addConfiguration( options() );
+        reactor.addConfiguration( options() );
+        try {
+            reactor.stage( new EagerSingleStagedReactorFactory() );
+            fail( "staging failure expected" );
+        } catch( TestContainerException e ) {
+            // expected
+        }
+        verify( healthy ).clear();
+        verify( broken ).clear();
+    }
+}
@@ -1,7 +1,21 @@
 package org.ops4j.pax.exam.spi;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.ops4j.pax.exam.CoreOptions.*;
+
+import java.io.File;
 import java.io.IOException;
+
 import org.junit.Test;
+import org.ops4j.pax.exam.Constants;
+import org.ops4j.pax.exam.ExamSystem;
+import org.ops4j.pax.exam.Option;
+import org.ops4j.pax.exam.TestContainerException;
+import org.ops4j.pax.exam.options.FrameworkStartLevelOption;
+import org.ops4j.pax.exam.options.ProvisionOption;
 
 public class ExamSystemTest {
 	
@@ -9,4 +23,58 @@ public class ExamSystemTest {
 	public void testSimple() throws IOException {
 		//Files.deleteRecursively(file);
 	}
+
+	@Test
+	public void testForkAddsOptions() throws IOException {
+		ExamSystem system = DefaultExamSystem.create( new Option[]{ bundle( "file:a.jar" ), frameworkStartLevel( 5 ) } );
+		ExamSystem fork = system.fork( new Option[]{ bundle( "file:b.jar" ), frameworkStartLevel( 10 ) } );
+
+		assertThat( system.getOptions( ProvisionOption.class ).length, is( 1 ) );
+		assertThat( system.getSingleOption( FrameworkStartLevelOption.class ).getStartLevel(), is( 5 ) );
+		assertThat( fork.getOptions( ProvisionOption.class ).length, is( 2 ) );
+		assertThat( fork.getOptions( ProvisionOption.class )[ 0 ].getURL(), is( "file:a.jar" ) );
+		assertThat( fork.getSingleOption( FrameworkStartLevelOption.class ).getStartLevel(), is( 10 ) );
+		assertThat( fork.getConfigFolder(), is( system.getConfigFolder() ) );
+		system.clear();
+	}
+
+	@Test
+	public void testForkProvisionsBundlesOnce() throws IOException {
+		ExamSystem system = DefaultExamSystem.create( new Option[]{ bundle( "file:/tmp/a.jar" ).startLevel( 3 ), bundle( "file:/tmp/b.jar" ) } );
+		ExamSystem fork = system.fork( new Option[]{ composite( bundle( "file:/tmp/a.jar" ).startLevel( 5 ) ) } );
+
+		assertThat( fork.getOptions( ProvisionOption.class ).length, is( 2 ) );
+		assertThat( fork.getOptions( ProvisionOption.class )[ 0 ].getStartLevel(), is( 5 ) );
+		system.clear();
+	}
+
+	@Test
+	public void testTempFolderIsCreatedOnDemand() throws IOException {
+		ExamSystem system = DefaultExamSystem.create( new Option[0] );
+		ExamSystem fork = system.fork( new Option[0] );
+		File temp = fork.getTempFolder();
+
+		assertThat( temp.isDirectory(), is( true ) );
+		assertThat( fork.getTempFolder(), is( temp ) );
+		assertThat( system.getTempFolder(), is( not( temp ) ) );
+		system.clear();
+		assertThat( temp.exists(), is( false ) );
+	}
+
+	@Test
+	public void testInvalidStoreCapacityIsRejected() throws IOException {
+		System.setProperty( Constants.EXAM_STORE_KEY, "memory" );
+		System.setProperty( Constants.EXAM_STORE_CAPACITY_KEY, "lots" );
+		ExamSystem system = DefaultExamSystem.create( new Option[0] );
+		try {
+			system.createProbe();
+			fail( "invalid capacity expected to be rejected" );
+		} catch( TestContainerException e ) {
+			assertThat( e.getMessage().contains( Constants.EXAM_STORE_CAPACITY_KEY ), is( true ) );
+		} finally {
+			system.clear();
+			System.clearProperty( Constants.EXAM_STORE_KEY );
+			System.clearProperty( Constants.EXAM_STORE_CAPACITY_KEY );
+		}
+	}
 }
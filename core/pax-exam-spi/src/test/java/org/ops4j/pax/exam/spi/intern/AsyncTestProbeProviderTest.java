@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainerException;
+import org.ops4j.pax.exam.TestProbeProvider;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ *
+ */
+public class AsyncTestProbeProviderTest {
+
+    @Test
+    public void testTestsAreKnownBeforeBuildFinishes()
+        throws Exception
+    {
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final TestProbeProvider built = mock( TestProbeProvider.class );
+        when( built.getStream() ).thenReturn( new ByteArrayInputStream( "probe".getBytes() ) );
+        TestAddress[] tests = new TestAddress[]{ new DefaultTestAddress( "test" ) };
+
+        AsyncTestProbeProvider probe = AsyncTestProbeProvider.start( tests, new Callable<TestProbeProvider>()
+        {
+            public TestProbeProvider call()
+                throws Exception
+            {
+                release.await();
+                return built;
+            }
+        } );
+
+        assertThat( probe.getTests(), is( tests ) );
+        assertThat( probe.toString(), is( "[Probe: building]" ) );
+        release.countDown();
+        assertThat( ByteStreams.toByteArray( probe.getStream() ), is( "probe".getBytes() ) );
+    }
+
+    @Test( expected = TestContainerException.class )
+    public void testBuildFailureIsReportedOnInstall()
+        throws IOException
+    {
+        AsyncTestProbeProvider probe = AsyncTestProbeProvider.start( new TestAddress[0], new Callable<TestProbeProvider>()
+        {
+            public TestProbeProvider call()
+            {
+                throw new TestContainerException( "broken" );
+            }
+        } );
+        probe.getStream();
+    }
+}
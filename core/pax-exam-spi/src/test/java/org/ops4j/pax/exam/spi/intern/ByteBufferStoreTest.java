@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+import org.ops4j.store.Handle;
+import org.ops4j.store.intern.TemporaryStore;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ *
+ */
+public class ByteBufferStoreTest {
+
+    @Test
+    public void testContentIsKeptInMemory()
+        throws IOException
+    {
+        ByteBufferStore store = new ByteBufferStore( createSpill(), 100 );
+        Handle handle = store.store( new ByteArrayInputStream( "probe".getBytes() ) );
+
+        assertThat( store.getUsed(), is( 5L ) );
+        assertThat( ByteStreams.toByteArray( store.load( handle ) ), is( "probe".getBytes() ) );
+        assertThat( ByteStreams.toByteArray( store.load( handle ) ), is( "probe".getBytes() ) );
+    }
+
+    @Test
+    public void testSameContentIsStoredOnce()
+        throws IOException
+    {
+        ByteBufferStore store = new ByteBufferStore( createSpill(), 100 );
+        Handle first = store.store( new ByteArrayInputStream( "probe".getBytes() ) );
+        Handle second = store.store( new ByteArrayInputStream( "probe".getBytes() ) );
+
+        assertThat( second.getIdentification(), is( first.getIdentification() ) );
+        assertThat( store.getUsed(), is( 5L ) );
+    }
+
+    @Test
+    public void testContentBeyondCapacityIsSpilled()
+        throws IOException
+    {
+        ByteBufferStore store = new ByteBufferStore( createSpill(), 8 );
+        store.store( new ByteArrayInputStream( "probe".getBytes() ) );
+        Handle handle = store.store( new ByteArrayInputStream( "another probe".getBytes() ) );
+
+        assertThat( store.getUsed(), is( 5L ) );
+        assertThat( ByteStreams.toByteArray( store.load( handle ) ), is( "another probe".getBytes() ) );
+        assertThat( new File( store.getLocation( handle ) ).isFile(), is( true ) );
+    }
+
+    @Test
+    public void testLocationIsWrittenToDisk()
+        throws IOException
+    {
+        ByteBufferStore store = new ByteBufferStore( createSpill(), 100 );
+        Handle handle = store.store( new ByteArrayInputStream( "probe".getBytes() ) );
+        File file = new File( store.getLocation( handle ) );
+
+        assertThat( file.isFile(), is( true ) );
+        assertThat( new File( store.getLocation( handle ) ), is( file ) );
+        assertThat( file.length(), is( 5L ) );
+    }
+
+    private static TemporaryStore createSpill()
+    {
+        return new TemporaryStore( new File( System.getProperty( "java.io.tmpdir" ), "pax-exam-store-" + System.nanoTime() ), false );
+    }
+}
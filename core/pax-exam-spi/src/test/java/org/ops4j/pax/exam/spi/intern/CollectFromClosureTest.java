@@ -0,0 +1,84 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ *
+ */
+public class CollectFromClosureTest {
+
+    @Test
+    public void testOnlyReachableClassesAreCollected()
+        throws IOException
+    {
+        File root = TestProbeBuilderImpl.findClassesFolder( ClosureAnchor.class );
+        Map<String, URL> map = new HashMap<String, URL>();
+        new CollectFromClosure( root, Arrays.<Class>asList( ClosureAnchor.class ) ).collect( map );
+
+        assertThat( map.containsKey( "org/ops4j/pax/exam/spi/intern/ClosureAnchor.class" ), is( true ) );
+        assertThat( map.containsKey( "org/ops4j/pax/exam/spi/intern/ClosureField.class" ), is( true ) );
+        assertThat( map.containsKey( "org/ops4j/pax/exam/spi/intern/ClosureGeneric.class" ), is( true ) );
+        assertThat( map.containsKey( "org/ops4j/pax/exam/spi/intern/ClosureReflective.class" ), is( true ) );
+        assertThat( map.containsKey( "org/ops4j/pax/exam/spi/intern/CollectFromClosureTest.class" ), is( false ) );
+        assertThat( map.containsKey( "org/ops4j/pax/exam/spi/intern/ProbeCacheTest.class" ), is( false ) );
+    }
+
+    @Test
+    public void testReferencesFromConstantPool()
+        throws IOException
+    {
+        File root = TestProbeBuilderImpl.findClassesFolder( ClosureAnchor.class );
+        assertThat( CollectFromClosure.getReferencedClasses( new File( root, "org/ops4j/pax/exam/spi/intern/ClosureAnchor.class" ) )
+                        .contains( "java/util/List" ), is( true ) );
+    }
+}
+
+class ClosureAnchor {
+
+    private ClosureField m_field = new ClosureField();
+    private List<ClosureGeneric> m_list;
+
+    Class load()
+        throws ClassNotFoundException
+    {
+        return Class.forName( "org.ops4j.pax.exam.spi.intern.ClosureReflective" );
+    }
+}
+
+class ClosureField {
+
+}
+
+class ClosureGeneric {
+
+}
+
+class ClosureReflective {
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ *
+ */
+public class CollectFromDirectoryTest {
+
+    @Test
+    public void testSameEntriesAsCollectFromBase()
+        throws IOException
+    {
+        File base = createFolder();
+        Map<String, URL> expected = new HashMap<String, URL>();
+        new CollectFromBase( base ).collect( expected );
+        Map<String, URL> actual = new HashMap<String, URL>();
+        new CollectFromDirectory( base ).collect( actual );
+
+        assertThat( new TreeSet<String>( actual.keySet() ), is( new TreeSet<String>( expected.keySet() ) ) );
+        assertThat( actual.size(), is( 3 ) );
+        for( String name : expected.keySet() ) {
+            assertThat( actual.get( name ), is( expected.get( name ) ) );
+        }
+    }
+
+    @Test
+    public void testUrlsOfNamesToBeEscaped()
+        throws IOException
+    {
+        File base = createFolder();
+        new File( base, "with space#1.txt" ).createNewFile();
+        new File( base, "a:b.txt" ).createNewFile();
+        Map<String, URL> map = new HashMap<String, URL>();
+        new CollectFromDirectory( base ).collect( map );
+
+        assertThat( map.get( "with space#1.txt" ), is( new File( base, "with space#1.txt" ).toURI().toURL() ) );
+        assertThat( map.get( "a:b.txt" ), is( new File( base, "a:b.txt" ).toURI().toURL() ) );
+    }
+
+    @Test
+    public void testIncludesAndExcludes()
+        throws IOException
+    {
+        File base = createFolder();
+        Map<String, URL> map = new HashMap<String, URL>();
+        new CollectFromDirectory( base, new String[]{ "org/**" }, new String[]{ "**/*.txt" } ).collect( map );
+
+        assertThat( map.keySet().size(), is( 1 ) );
+        assertThat( map.containsKey( "org/foo/Bar.class" ), is( true ) );
+    }
+
+    @Test
+    public void testGlobs()
+    {
+        assertThat( PathFilter.toPattern( "**/*.class" ).matcher( "Foo.class" ).matches(), is( true ) );
+        assertThat( PathFilter.toPattern( "**/*.class" ).matcher( "org/foo/Foo.class" ).matches(), is( true ) );
+        assertThat( PathFilter.toPattern( "*.class" ).matcher( "org/Foo.class" ).matches(), is( false ) );
+        assertThat( PathFilter.toPattern( "org/?oo.txt" ).matcher( "org/foo.txt" ).matches(), is( true ) );
+    }
+
+    private static File createFolder()
+        throws IOException
+    {
+        File base = new File( System.getProperty( "java.io.tmpdir" ), "pax-exam-collect-" + System.nanoTime() );
+        new File( base, "org/foo" ).mkdirs();
+        new File( base, "org/foo/Bar.class" ).createNewFile();
+        new File( base, "org/foo/readme.txt" ).createNewFile();
+        new File( base, "log.txt" ).createNewFile();
+        new File( base, ".hidden" ).createNewFile();
+        return base;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.junit.Test;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.store.intern.TemporaryStore;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ *
+ */
+public class CollectFromJarTest {
+
+    private static final String CLASS = "org/ops4j/pax/exam/spi/intern/ClosureField.class";
+
+    @Test
+    public void testEntriesOfJarAreCollected()
+        throws IOException
+    {
+        File jar = createJar();
+        Map<String, URL> map = new HashMap<String, URL>();
+        new CollectFromJar( jar ).collect( map );
+
+        assertThat( map.size(), is( 2 ) );
+        assertThat( CollectFromJar.getJarFile( map.get( CLASS ) ), is( jar.getAbsoluteFile() ) );
+        assertThat( CollectFromJar.getEntryName( map.get( CLASS ) ), is( CLASS ) );
+        assertThat( ByteStreams.toByteArray( map.get( "readme.txt" ).openStream() ), is( "hello".getBytes() ) );
+    }
+
+    @Test
+    public void testRawCopyKeepsContent()
+        throws IOException
+    {
+        File jar = createJar();
+        RawZipFile zip = new RawZipFile( jar );
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ProbeJarWriter writer = new ProbeJarWriter( bytes );
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+        manifest.getMainAttributes().putValue( "Foo", "bar" );
+        writer.putManifest( manifest );
+        for( RawZipFile.Entry entry : zip.getEntries() ) {
+            writer.putRaw( zip, entry );
+        }
+        writer.put( "extra.txt", new ByteArrayInputStream( "extra".getBytes() ) );
+        writer.close();
+        zip.close();
+
+        JarInputStream in = new JarInputStream( new ByteArrayInputStream( bytes.toByteArray() ) );
+        assertThat( in.getManifest().getMainAttributes().getValue( "Foo" ), is( "bar" ) );
+        Map<String, byte[]> content = new HashMap<String, byte[]>();
+        JarEntry entry;
+        while( ( entry = in.getNextJarEntry() ) != null ) {
+            content.put( entry.getName(), ByteStreams.toByteArray( in ) );
+        }
+        assertThat( content.get( "readme.txt" ), is( "hello".getBytes() ) );
+        assertThat( content.get( "extra.txt" ), is( "extra".getBytes() ) );
+        assertThat( content.get( CLASS ), is( classBytes() ) );
+    }
+
+    @Test
+    public void testProbeFromJarPackagedTest()
+        throws Exception
+    {
+        File jar = createJar();
+        Class anchor = new URLClassLoader( new URL[]{ jar.toURI().toURL() }, null ).loadClass( "org.ops4j.pax.exam.spi.intern.ClosureField" );
+        File folder = new File( System.getProperty( "java.io.tmpdir" ), "pax-exam-jar-probe-" + System.nanoTime() );
+        TestProbeBuilderImpl builder = new TestProbeBuilderImpl( new TemporaryStore( folder, false ) );
+        builder.setHeader( "Bundle-SymbolicName", "probe" );
+        builder.addTest( anchor, "test" );
+        TestProbeProvider probe = builder.build();
+
+        JarInputStream in = new JarInputStream( probe.getStream() );
+        assertThat( in.getManifest().getMainAttributes().getValue( "Bundle-SymbolicName" ), is( "probe" ) );
+        Map<String, byte[]> content = new HashMap<String, byte[]>();
+        JarEntry entry;
+        while( ( entry = in.getNextJarEntry() ) != null ) {
+            content.put( entry.getName(), ByteStreams.toByteArray( in ) );
+        }
+        assertThat( content.size(), is( 2 ) );
+        assertThat( content.get( CLASS ), is( classBytes() ) );
+    }
+
+    private static File createJar()
+        throws IOException
+    {
+        File jar = File.createTempFile( "pax-exam-test", ".jar" );
+        jar.deleteOnExit();
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+        JarOutputStream out = new JarOutputStream( new FileOutputStream( jar ), manifest );
+        out.putNextEntry( new JarEntry( "org/ops4j/pax/exam/spi/intern/" ) );
+        out.putNextEntry( new JarEntry( CLASS ) );
+        out.write( classBytes() );
+        out.putNextEntry( new JarEntry( "readme.txt" ) );
+        out.write( "hello".getBytes() );
+        out.close();
+        return jar;
+    }
+
+    private static byte[] classBytes()
+        throws IOException
+    {
+        InputStream in = CollectFromJarTest.class.getResourceAsStream( "/" + CLASS );
+        try {
+            return ByteStreams.toByteArray( in );
+        } finally {
+            in.close();
+        }
+    }
+}
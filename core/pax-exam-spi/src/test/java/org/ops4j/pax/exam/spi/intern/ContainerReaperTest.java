@@ -0,0 +1,59 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Test;
+import org.ops4j.pax.exam.ConfigurationManager;
+import org.ops4j.pax.exam.Constants;
+import org.ops4j.pax.exam.TestContainer;
+
+/**
+ *
+ */
+public class ContainerReaperTest {
+
+    @Test
+    public void testStopsOnCallingThreadByDefault()
+        throws Exception
+    {
+        System.clearProperty( Constants.EXAM_REAPER_KEY );
+        TestContainer container = mock( TestContainer.class );
+
+        ContainerReaper.create( new ConfigurationManager() ).stop( container );
+        verify( container ).stop();
+    }
+
+    @Test
+    public void testStopsInBackgroundIfSwitchedOn()
+        throws Exception
+    {
+        System.setProperty( Constants.EXAM_REAPER_KEY, "true" );
+        try {
+            TestContainer container = mock( TestContainer.class );
+            ContainerReaper reaper = ContainerReaper.create( new ConfigurationManager() );
+            reaper.stop( container );
+            assertThat( reaper.await( 10000 ), is( true ) );
+            verify( container ).stop();
+        } finally {
+            System.clearProperty( Constants.EXAM_REAPER_KEY );
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.junit.Test;
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.store.Handle;
+import org.ops4j.store.Store;
+import org.ops4j.store.intern.TemporaryStore;
+
+/**
+ *
+ */
+public class DefaultTestProbeProviderTest {
+
+    @Test
+    public void testMetadataIsReadOnDemandOnce()
+        throws IOException
+    {
+        Store<InputStream> store = spy( new TemporaryStore( new File( System.getProperty( "java.io.tmpdir" ), "pax-exam-metadata-" + System.nanoTime() ), false ) );
+        Handle handle = store.store( new ByteArrayInputStream( createProbe() ) );
+        TestAddress[] tests = new TestAddress[]{ new DefaultTestAddress( "test" ) };
+
+        DefaultTestProbeProvider probe = new DefaultTestProbeProvider( tests, store, handle );
+        verify( store, times( 0 ) ).load( handle );
+
+        ProbeMetadata metadata = probe.getMetadata();
+        assertThat( metadata.getHeader( "Bundle-SymbolicName" ), is( "probe" ) );
+        assertThat( metadata.getTests(), is( tests ) );
+        assertThat( metadata.getId(), is( handle.getIdentification() ) );
+        assertThat( probe.toString().contains( "Bundle-SymbolicName=probe" ), is( true ) );
+        verify( store, times( 1 ) ).load( handle );
+    }
+
+    @Test
+    public void testNothingIsReadWithoutDiagnostics()
+    {
+        Store<InputStream> store = mock( Store.class );
+        Handle handle = mock( Handle.class );
+        new DefaultTestProbeProvider( new TestAddress[0], store, handle ).getTests();
+        verifyZeroInteractions( store );
+    }
+
+    private static byte[] createProbe()
+        throws IOException
+    {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+        manifest.getMainAttributes().putValue( "Bundle-SymbolicName", "probe" );
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new JarOutputStream( bytes, manifest ).close();
+        return bytes.toByteArray();
+    }
+}
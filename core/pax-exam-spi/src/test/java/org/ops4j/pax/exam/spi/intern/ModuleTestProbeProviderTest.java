@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.ops4j.pax.exam.Constants;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestProbeBuilder;
+import org.ops4j.store.intern.TemporaryStore;
+
+/**
+ *
+ */
+public class ModuleTestProbeProviderTest {
+
+    private File m_folder;
+
+    @Before
+    public void setUp()
+    {
+        m_folder = new File( System.getProperty( "java.io.tmpdir" ), "pax-exam-module-" + System.nanoTime() );
+        System.setProperty( Constants.EXAM_PROBE_SCOPE_KEY, "module" );
+    }
+
+    @After
+    public void tearDown()
+    {
+        System.clearProperty( Constants.EXAM_PROBE_SCOPE_KEY );
+    }
+
+    @Test
+    public void testTestClassesShareProbe()
+        throws IOException
+    {
+        ModuleTestProbeProvider first = build( ClosureAnchor.class, "PAXEXAM-PROBE-1" );
+        ModuleTestProbeProvider second = build( ClosureField.class, "PAXEXAM-PROBE-2" );
+
+        assertThat( second.getSharedLocation(), is( first.getSharedLocation() ) );
+        assertThat( second.getLocation(), is( not( first.getLocation() ) ) );
+
+        JarFile jar = new JarFile( new File( URI.create( first.getSharedLocation() ) ) );
+        Attributes shared = jar.getManifest().getMainAttributes();
+        jar.close();
+        String name = shared.getValue( "Bundle-SymbolicName" );
+        assertThat( name.startsWith( "PAXEXAM-MODULE-PROBE-" ), is( true ) );
+        assertThat( shared.getValue( "PaxExam-Executable" ), is( (String) null ) );
+        assertThat( shared.getValue( "Export-Package" ).contains( "org.ops4j.pax.exam.spi.intern" ), is( true ) );
+
+        Attributes signatures = new JarInputStream( second.getStream() ).getManifest().getMainAttributes();
+        assertThat( signatures.getValue( "Bundle-SymbolicName" ), is( "PAXEXAM-PROBE-2" ) );
+        assertThat( signatures.getValue( "Require-Bundle" ), is( name ) );
+        assertThat( signatures.getValue( "PaxExam-Executable" ).length() > 0, is( true ) );
+    }
+
+    @Test
+    public void testSharedProbeIsInstalledFirst()
+        throws IOException
+    {
+        ModuleTestProbeProvider probe = build( ClosureAnchor.class, "PAXEXAM-PROBE-1" );
+        TestContainer container = mock( TestContainer.class );
+        when( container.install( eq( probe.getLocation() ), any( InputStream.class ) ) ).thenReturn( 2L );
+
+        assertThat( ProbeInstaller.install( container, probe ), is( 2L ) );
+
+        InOrder order = inOrder( container );
+        order.verify( container ).install( eq( probe.getSharedLocation() ), any( InputStream.class ) );
+        order.verify( container ).install( eq( probe.getLocation() ), any( InputStream.class ) );
+    }
+
+    @Test
+    public void testSharedProbeIsInstalledOncePerContainer()
+        throws IOException
+    {
+        ModuleTestProbeProvider first = build( ClosureAnchor.class, "PAXEXAM-PROBE-1" );
+        ModuleTestProbeProvider second = build( ClosureField.class, "PAXEXAM-PROBE-2" );
+        TestContainer container = mock( TestContainer.class );
+        TestContainer other = mock( TestContainer.class );
+
+        ProbeInstaller.install( container, first );
+        ProbeInstaller.install( container, second );
+        ProbeInstaller.install( other, second );
+
+        verify( container, times( 1 ) ).install( eq( first.getSharedLocation() ), any( InputStream.class ) );
+        verify( container ).install( eq( second.getLocation() ), any( InputStream.class ) );
+        verify( other, times( 1 ) ).install( eq( second.getSharedLocation() ), any( InputStream.class ) );
+    }
+
+    private ModuleTestProbeProvider build( Class c, String name )
+        throws IOException
+    {
+        TestProbeBuilder builder = new TestProbeBuilderImpl(
+            new TemporaryStore( new File( m_folder, "store" ), false ),
+            null,
+            new ProbeCache( new File( m_folder, "modules" ) )
+        );
+        builder.setHeader( "Bundle-SymbolicName", name );
+        builder.addTest( c, "test" );
+        return (ModuleTestProbeProvider) builder.build();
+    }
+}
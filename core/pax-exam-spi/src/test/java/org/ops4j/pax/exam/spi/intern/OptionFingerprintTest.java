@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.ops4j.pax.exam.CoreOptions.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.ops4j.pax.exam.Option;
+
+public class OptionFingerprintTest {
+
+    @Test
+    public void testEqualConfigurationsBuiltSeparately()
+    {
+        assertThat( OptionFingerprint.compute( configuration( "bundle" ) ), is( OptionFingerprint.compute( configuration( "bundle" ) ) ) );
+    }
+
+    @Test
+    public void testBundleContentCounts()
+    {
+        assertThat( OptionFingerprint.compute( configuration( "bundle" ) ), is( not( OptionFingerprint.compute( configuration( "other" ) ) ) ) );
+    }
+
+    @Test
+    public void testValuesCount()
+    {
+        Option[] a = options( systemProperty( "foo" ).value( "bar" ), mavenBundle( "org.foo", "foo", "1.0" ) );
+        Option[] b = options( systemProperty( "foo" ).value( "bar" ), mavenBundle( "org.foo", "foo", "1.1" ) );
+        Option[] c = options( systemProperty( "foo" ).value( "bar" ), mavenBundle( "org.foo", "foo", "1.0" ).startLevel( 3 ) );
+        assertThat( OptionFingerprint.compute( a ), is( not( OptionFingerprint.compute( b ) ) ) );
+        assertThat( OptionFingerprint.compute( a ), is( not( OptionFingerprint.compute( c ) ) ) );
+        assertThat( OptionFingerprint.compute( a, "factory" ), is( not( OptionFingerprint.compute( a, "other factory" ) ) ) );
+    }
+
+    @Test
+    public void testUnknownOptionsHaveNoFingerprint()
+    {
+        Option unknown = new Option() {
+        };
+        assertThat( OptionFingerprint.compute( options( unknown ) ), is( nullValue() ) );
+        assertThat( OptionFingerprint.compute( options( composite( unknown ) ) ), is( nullValue() ) );
+        assertThat( OptionFingerprint.describe( unknown ), is( nullValue() ) );
+    }
+
+    /**
+     * Like a @Configuration method: stream bundles and working directories are generated on each call.
+     */
+    private static Option[] configuration( String content )
+    {
+        return options(
+            streamBundle( new ByteArrayInputStream( content.getBytes() ) ),
+            workingDirectory( "target/exam/" + UUID.randomUUID() ),
+            mavenBundle( "org.foo", "foo", "1.0" ),
+            frameworkProperty( "foo" ).value( "bar" )
+        );
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.ops4j.pax.exam.CoreOptions.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.ops4j.pax.exam.Option;
+import org.ops4j.pax.exam.OptionUtils;
+import org.ops4j.pax.exam.options.AbstractUrlProvisionOption;
+import org.ops4j.pax.exam.options.FrameworkStartLevelOption;
+import org.ops4j.pax.exam.options.ProvisionOption;
+import org.ops4j.pax.exam.options.SystemPropertyOption;
+import org.ops4j.pax.exam.options.TimeoutOption;
+import org.ops4j.pax.exam.options.UrlProvisionOption;
+import org.ops4j.pax.exam.options.ValueOption;
+
+/**
+ *
+ */
+public class OptionIndexTest {
+
+    private static final Option[] OPTIONS = new Option[]{
+        bundle( "file:a.jar" ),
+        systemProperty( "a" ).value( "1" ),
+        composite( bundle( "file:b.jar" ), frameworkStartLevel( 5 ) ),
+        mavenBundle( "org.foo", "bar" ),
+        frameworkStartLevel( 10 )
+    };
+
+    @Test
+    public void testSameAsFilter()
+    {
+        OptionIndex index = new OptionIndex( OPTIONS );
+        for( Class<? extends Option> type : Arrays.<Class<? extends Option>>asList(
+            Option.class, ProvisionOption.class, UrlProvisionOption.class, AbstractUrlProvisionOption.class,
+            ValueOption.class, SystemPropertyOption.class, FrameworkStartLevelOption.class ) ) {
+            Option[] expected = OptionUtils.filter( type, OPTIONS );
+            Option[] actual = index.get( type );
+            assertThat( type.getName(), actual, is( expected ) );
+        }
+        assertThat( index.get( ProvisionOption.class ).length, is( 3 ) );
+    }
+
+    @Test
+    public void testLastWins()
+    {
+        OptionIndex index = new OptionIndex( OPTIONS );
+        assertThat( index.getLast( FrameworkStartLevelOption.class ).getStartLevel(), is( 10 ) );
+        assertThat( index.getLast( UrlProvisionOption.class ).getURL(), is( "file:b.jar" ) );
+    }
+
+    @Test
+    public void testUnused()
+    {
+        OptionIndex index = new OptionIndex( OPTIONS );
+        Set<Class> requested = new HashSet<Class>();
+        requested.add( ProvisionOption.class );
+        requested.add( FrameworkStartLevelOption.class );
+
+        assertThat( index.getUnused( requested ).size(), is( 1 ) );
+        assertThat( index.getUnused( requested ).get( 0 ) instanceof SystemPropertyOption, is( true ) );
+        assertThat( index.get( TimeoutOption.class ).length, is( 0 ) );
+    }
+}
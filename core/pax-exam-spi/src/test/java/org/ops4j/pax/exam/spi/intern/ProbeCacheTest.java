@@ -0,0 +1,93 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.jar.Attributes;
+import java.util.jar.JarInputStream;
+
+import org.junit.Test;
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.store.Store;
+import org.ops4j.store.intern.TemporaryStore;
+
+/**
+ *
+ */
+public class ProbeCacheTest {
+
+    @Test
+    public void testSecondBuildIsTakenFromCacheWithCurrentHeaders()
+        throws IOException
+    {
+        File folder = new File( System.getProperty( "java.io.tmpdir" ), "pax-exam-probe-cache-" + System.nanoTime() );
+        Store<InputStream> store = new TemporaryStore( new File( folder, "store" ), false );
+        ProbeCache cache = new ProbeCache( new File( folder, "cache" ) );
+
+        TestProbeProvider first = build( store, cache, "first" );
+        assertThat( new File( folder, "cache" ).list().length, is( 1 ) );
+        TestProbeProvider second = build( store, cache, "second" );
+        assertThat( new File( folder, "cache" ).list().length, is( 1 ) );
+
+        Attributes attributes = new JarInputStream( second.getStream() ).getManifest().getMainAttributes();
+        assertThat( attributes.getValue( "Bundle-SymbolicName" ), is( "second" ) );
+        TestAddress test = second.getTests()[ 0 ];
+        assertThat( attributes.getValue( test.identifier() ), is( notNullValue() ) );
+        assertThat( attributes.getValue( first.getTests()[ 0 ].identifier() ), is( (String) null ) );
+        assertThat( attributes.getValue( "PaxExam-Executable" ), is( not( (String) null ) ) );
+        assertThat( new JarInputStream( second.getStream() ).getNextJarEntry(), is( notNullValue() ) );
+    }
+
+    @Test
+    public void testKeyIgnoresVolatileHeaders()
+        throws IOException
+    {
+        Properties p1 = new Properties();
+        p1.setProperty( "Bundle-SymbolicName", "a" );
+        p1.setProperty( "PaxExam-1", "x" );
+        p1.setProperty( "Ignore-Package", "foo" );
+        Properties p2 = new Properties();
+        p2.setProperty( "Bundle-SymbolicName", "b" );
+        p2.setProperty( "PaxExam-2", "y" );
+        p2.setProperty( "Ignore-Package", "foo" );
+        Map<String, URL> none = new HashMap<String, URL>();
+
+        assertThat( ProbeCache.computeKey( none, p1 ), is( ProbeCache.computeKey( none, p2 ) ) );
+        p2.setProperty( "Ignore-Package", "bar" );
+        assertThat( ProbeCache.computeKey( none, p1 ), is( not( ProbeCache.computeKey( none, p2 ) ) ) );
+    }
+
+    private static TestProbeProvider build( Store<InputStream> store, ProbeCache cache, String name )
+        throws IOException
+    {
+        TestProbeBuilderImpl builder = new TestProbeBuilderImpl( store, cache );
+        builder.setHeader( "Bundle-SymbolicName", name );
+        builder.addTest( ProbeCacheTest.class, "testKeyIgnoresVolatileHeaders" );
+        return builder.build();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+/**
+ *
+ */
+public class ProbeImportsTest {
+
+    @Test
+    public void testReferencedPackagesAreImported()
+        throws IOException
+    {
+        Set<String> packages = new ProbeImports( probeOf( ProbeImportsTest.class ), Collections.<String>emptySet() ).getPackages();
+
+        assertThat( packages.contains( "org.junit" ), is( true ) );
+        assertThat( packages.contains( "org.hamcrest" ), is( true ) );
+        assertThat( packages.contains( "java.util" ), is( false ) );
+        assertThat( packages.contains( "org.ops4j.pax.exam.spi.intern" ), is( false ) );
+    }
+
+    @Test
+    public void testIgnoredPackagesAreOptional()
+        throws IOException
+    {
+        String header = new ProbeImports( probeOf( ProbeImportsTest.class ), Collections.singleton( "org.hamcrest" ) ).getHeader();
+
+        assertThat( header.contains( "org.hamcrest;resolution:=optional" ), is( true ) );
+        assertThat( header.contains( "org.junit;resolution:=optional" ), is( false ) );
+    }
+
+    @Test
+    public void testPackagesOnlyUsedInAnnotationsAreOptional()
+        throws IOException
+    {
+        List<String> imports = Arrays.asList( new ProbeImports( probeOf( AnnotatedSample.class ), Collections.<String>emptySet() ).getHeader().split( "," ) );
+
+        assertThat( imports.contains( "org.junit.runner;resolution:=optional" ), is( true ) );
+        assertThat( imports.contains( "org.junit.runners;resolution:=optional" ), is( true ) );
+        assertThat( imports.contains( "org.junit" ), is( true ) );
+    }
+
+    @RunWith( Suite.class )
+    public static class AnnotatedSample {
+
+        @Test
+        public void test()
+        {
+            Assert.assertTrue( true );
+        }
+    }
+
+    private static Map<String, URL> probeOf( Class c )
+    {
+        String name = c.getName().replace( '.', '/' ) + ".class";
+        Map<String, URL> map = new HashMap<String, URL>();
+        map.put( name, c.getResource( "/" + name ) );
+        return map;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Checks the compression modes of {@link ProbeJarWriter} and logs how long each takes for the same content.
+ */
+public class ProbeJarWriterTest {
+
+    private static Logger LOG = LoggerFactory.getLogger( ProbeJarWriterTest.class );
+
+    @Test
+    public void testStoredEntries()
+        throws IOException
+    {
+        Map<String, byte[]> content = createContent( 20 );
+        byte[] jar = write( content, ZipEntry.STORED, null );
+
+        JarInputStream in = new JarInputStream( new ByteArrayInputStream( jar ) );
+        JarEntry entry;
+        while( ( entry = in.getNextJarEntry() ) != null ) {
+            assertThat( entry.getMethod(), is( ZipEntry.STORED ) );
+        }
+        assertThat( read( jar ), is( names( content ) ) );
+    }
+
+    @Test
+    public void testParallelEntriesKeepOrder()
+        throws IOException
+    {
+        Map<String, byte[]> content = createContent( 50 );
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try {
+            byte[] jar = write( content, ZipEntry.DEFLATED, executor );
+            assertThat( read( jar ), is( names( content ) ) );
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCompareModes()
+        throws IOException
+    {
+        Map<String, byte[]> content = createContent( 400 );
+        ExecutorService executor = Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors() );
+        try {
+            // warm up
+            write( content, ZipEntry.DEFLATED, null );
+            write( content, ZipEntry.STORED, null );
+            write( content, ZipEntry.DEFLATED, executor );
+
+            benchmark( "deflate", content, ZipEntry.DEFLATED, null );
+            benchmark( "stored", content, ZipEntry.STORED, null );
+            benchmark( "parallel", content, ZipEntry.DEFLATED, executor );
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void benchmark( String mode, Map<String, byte[]> content, int method, ExecutorService executor )
+        throws IOException
+    {
+        long start = System.nanoTime();
+        byte[] jar = write( content, method, executor );
+        long writing = System.nanoTime() - start;
+        start = System.nanoTime();
+        List<String> names = read( jar );
+        long reading = System.nanoTime() - start;
+        assertThat( names, is( names( content ) ) );
+        LOG.info( mode + ": " + jar.length + " bytes, written in " + writing / 1000000 + " ms, read in " + reading / 1000000 + " ms" );
+    }
+
+    private static byte[] write( Map<String, byte[]> content, int method, ExecutorService executor )
+        throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ProbeJarWriter writer = new ProbeJarWriter( bytes, method, executor );
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+        writer.putManifest( manifest );
+        for( Map.Entry<String, byte[]> entry : content.entrySet() ) {
+            writer.put( entry.getKey(), new ByteArrayInputStream( entry.getValue() ) );
+        }
+        writer.close();
+        return bytes.toByteArray();
+    }
+
+    private static List<String> read( byte[] jar )
+        throws IOException
+    {
+        List<String> names = new ArrayList<String>();
+        JarInputStream in = new JarInputStream( new ByteArrayInputStream( jar ) );
+        JarEntry entry;
+        while( ( entry = in.getNextJarEntry() ) != null ) {
+            ByteStreams.toByteArray( in );
+            names.add( entry.getName() );
+        }
+        return names;
+    }
+
+    private static List<String> names( Map<String, byte[]> content )
+    {
+        return new ArrayList<String>( content.keySet() );
+    }
+
+    /**
+     * Somewhat compressible content, like class files.
+     */
+    private static Map<String, byte[]> createContent( int entries )
+    {
+        Random random = new Random( 42 );
+        Map<String, byte[]> content = new LinkedHashMap<String, byte[]>();
+        for( int i = 0; i < entries; i++ ) {
+            byte[] data = new byte[2048 + random.nextInt( 16384 )];
+            for( int j = 0; j < data.length; j++ ) {
+                data[ j ] = (byte) ( 'a' + random.nextInt( 16 ) );
+            }
+            content.put( "org/foo/Class" + i + ".class", data );
+        }
+        return content;
+    }
+}
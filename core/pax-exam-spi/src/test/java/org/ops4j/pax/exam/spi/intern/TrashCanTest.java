@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.intern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ *
+ */
+public class TrashCanTest {
+
+    @Test
+    public void testFolderIsMovedAndDeleted()
+        throws Exception
+    {
+        File parent = createParent();
+        File folder = createFolder( parent, "storage" );
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            TrashCan trash = new TrashCan( executor );
+            Future<?> done = trash.delete( folder );
+            assertThat( folder.exists(), is( false ) );
+            done.get();
+            trash.close( 10000 );
+            assertThat( new File( parent, TrashCan.TRASH_FOLDER ).list().length, is( 0 ) );
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testStaleTrashIsSwept()
+        throws Exception
+    {
+        File parent = createParent();
+        File trashFolder = new File( parent, TrashCan.TRASH_FOLDER );
+        createFolder( trashFolder, "crashed" );
+        new File( trashFolder, "crashed.lock" ).createNewFile();
+
+        new TrashCan( null ).delete( createFolder( parent, "storage" ) ).get();
+
+        assertThat( new File( trashFolder, "crashed" ).exists(), is( false ) );
+        assertThat( new File( trashFolder, "crashed.lock" ).exists(), is( false ) );
+    }
+
+    @Test
+    public void testTrashInUseIsNotSwept()
+        throws Exception
+    {
+        File parent = createParent();
+        File trashFolder = new File( parent, TrashCan.TRASH_FOLDER );
+        TrashCan first = new TrashCan( null );
+        first.delete( createFolder( parent, "first" ) ).get();
+
+        TrashCan second = new TrashCan( null );
+        second.delete( createFolder( parent, "second" ) ).get();
+
+        // the lock files and the folders of both
+        assertThat( trashFolder.list().length, is( 4 ) );
+        first.close( 0 );
+        second.close( 0 );
+        assertThat( trashFolder.list().length, is( 0 ) );
+    }
+
+    @Test
+    public void testDeletesAfterCloseAreImmediate()
+        throws Exception
+    {
+        File parent = createParent();
+        File folder = createFolder( parent, "storage" );
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            TrashCan trash = new TrashCan( executor );
+            trash.close( 0 );
+            assertThat( trash.delete( folder ).isDone(), is( true ) );
+            assertThat( folder.exists(), is( false ) );
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static File createParent()
+    {
+        File parent = new File( System.getProperty( "java.io.tmpdir" ), "pax-exam-trash-" + System.nanoTime() );
+        parent.mkdirs();
+        return parent;
+    }
+
+    private static File createFolder( File parent, String name )
+        throws IOException
+    {
+        File folder = new File( parent, name );
+        new File( folder, "bundles/1" ).mkdirs();
+        new File( folder, "bundles/1/bundle.jar" ).createNewFile();
+        return folder;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.ops4j.pax.exam.CoreOptions.options;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.ops4j.pax.exam.ExamSystem;
+import org.ops4j.pax.exam.Option;
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestContainerFactory;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.spi.StagedConfiguration;
+import org.ops4j.pax.exam.spi.StagedExamReactor;
+import org.ops4j.pax.exam.spi.intern.DefaultTestAddress;
+import org.ops4j.pax.exam.spi.intern.TimedTestContainer.Sample;
+
+/**
+ *
+ */
+public class AdaptiveStagedReactorFactoryTest {
+
+    @Test
+    public void testExpensiveStartSharesContainer()
+    {
+        assertThat( AdaptiveStagedReactorFactory.choose( 10000, 10, 20, 8 ), is( AdaptiveStagedReactorFactory.EAGER ) );
+    }
+
+    @Test
+    public void testExpensiveTestsArePartitioned()
+    {
+        assertThat( AdaptiveStagedReactorFactory.choose( 1000, 5000, 8, 4 ), is( 4 ) );
+        assertThat( AdaptiveStagedReactorFactory.choose( 1000, 5000, 8, 1 ), is( AdaptiveStagedReactorFactory.EAGER ) );
+    }
+
+    @Test
+    public void testSingleTestIsConfined()
+    {
+        assertThat( AdaptiveStagedReactorFactory.choose( 1000, 100, 1, 8 ), is( AdaptiveStagedReactorFactory.CONFINED ) );
+    }
+
+    @Test
+    public void testTimingsAreRecordedAndMerged()
+    {
+        File folder = tempFolder();
+        ReactorTimings timings = new ReactorTimings( folder );
+        assertThat( timings.get( "key" ), is( nullValue() ) );
+
+        timings.record( "key", sample( 100, 10 ) );
+        assertThat( new ReactorTimings( folder ).get( "key" )[ 0 ], is( 100L ) );
+
+        timings.record( "key", sample( 300, 30 ) );
+        long[] costs = new ReactorTimings( folder ).get( "key" );
+        assertThat( costs[ 0 ], is( 200L ) );
+        assertThat( costs[ 1 ], is( 20L ) );
+    }
+
+    @Test
+    public void testConcurrentRecordsAreNotLost()
+        throws Exception
+    {
+        final File folder = tempFolder();
+        Thread[] threads = new Thread[8];
+        for( int i = 0; i < threads.length; i++ ) {
+            final String key = "key" + i;
+            threads[ i ] = new Thread()
+            {
+                public void run()
+                {
+                    new ReactorTimings( folder ).record( key, sample( 100, 10 ) );
+                }
+            };
+            threads[ i ].start();
+        }
+        for( Thread thread : threads ) {
+            thread.join();
+        }
+        for( int i = 0; i < threads.length; i++ ) {
+            assertThat( new ReactorTimings( folder ).get( "key" + i )[ 0 ], is( 100L ) );
+        }
+    }
+
+    @Test
+    public void testFirstRunIsEagerAndRecorded()
+        throws Exception
+    {
+        File folder = tempFolder();
+        ExamSystem system = mock( ExamSystem.class );
+        when( system.getConfigFolder() ).thenReturn( folder );
+        when( system.getOptions( Option.class ) ).thenReturn( new Option[0] );
+        when( system.fork( any( Option[].class ) ) ).thenReturn( system );
+        TestContainer container = mock( TestContainer.class );
+        TestContainerFactory factory = mock( TestContainerFactory.class );
+        when( factory.create( any( ExamSystem.class ) ) ).thenReturn( new TestContainer[]{ container } );
+        TestProbeProvider probe = mock( TestProbeProvider.class );
+        when( probe.getTests() ).thenReturn( new TestAddress[]{ new DefaultTestAddress( "org.foo.BarTest.a" ), new DefaultTestAddress( "org.foo.BarTest.b" ) } );
+
+        StagedExamReactor reactor = new AdaptiveStagedReactorFactory().createFromConfigurations( Arrays.asList( new StagedConfiguration( system, options(), factory ) ), Arrays.asList( probe ) );
+        for( TestAddress address : reactor.getTargets() ) {
+            reactor.invoke( address );
+        }
+        reactor.tearDown();
+
+        verify( container ).start();
+        assertThat( new File( folder, ReactorTimings.FILE_NAME ).exists(), is( true ) );
+        assertThat( AdaptiveStagedReactorFactory.getTestClass( Arrays.asList( probe ) ), is( "org.foo.BarTest" ) );
+    }
+
+    private static Sample sample( long start, long test )
+    {
+        Sample sample = new Sample();
+        sample.addStart( start );
+        sample.addTest( test );
+        return sample;
+    }
+
+    private static File tempFolder()
+    {
+        File folder = new File( System.getProperty( "java.io.tmpdir" ), "pax-exam-timings-" + System.nanoTime() );
+        folder.mkdirs();
+        folder.deleteOnExit();
+        return folder;
+    }
+}
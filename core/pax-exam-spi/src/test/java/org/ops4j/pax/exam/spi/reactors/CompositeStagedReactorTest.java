@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.ops4j.pax.exam.CoreOptions.options;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.ops4j.pax.exam.ExamSystem;
+import org.ops4j.pax.exam.Option;
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestContainerFactory;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.spi.StagedConfiguration;
+import org.ops4j.pax.exam.spi.StagedExamReactor;
+import org.ops4j.pax.exam.spi.intern.DefaultTestAddress;
+
+/**
+ *
+ */
+public class CompositeStagedReactorTest {
+
+    @Test
+    public void testOverriddenTestGetsItsOwnContainer()
+        throws Exception
+    {
+        ExamSystem system = mock( ExamSystem.class );
+        when( system.fork( any( Option[].class ) ) ).thenReturn( system );
+        TestContainer shared = mock( TestContainer.class );
+        TestContainer confined = mock( TestContainer.class );
+        TestContainerFactory factory = mock( TestContainerFactory.class );
+        when( factory.create( any( ExamSystem.class ) ) ).thenReturn( new TestContainer[]{ shared }, new TestContainer[]{ confined } );
+        TestAddress a = new DefaultTestAddress( "a" );
+        TestAddress b = new DefaultTestAddress( "b" );
+        TestProbeProvider probe = mock( TestProbeProvider.class );
+        when( probe.getTests() ).thenReturn( new TestAddress[]{ a, b } );
+
+        CompositeStagedReactorFactory composite = new CompositeStagedReactorFactory( new EagerSingleStagedReactorFactory() );
+        composite.override( b, new AllConfinedStagedReactorFactory() );
+        StagedExamReactor reactor = composite.createFromConfigurations( Arrays.asList( new StagedConfiguration( system, options(), factory ) ), Arrays.asList( probe ) );
+
+        assertThat( reactor.getTargets().size(), is( 2 ) );
+        verify( shared ).start();
+        for( TestAddress address : reactor.getTargets() ) {
+            reactor.invoke( address );
+        }
+        verify( shared, times( 1 ) ).call( any( TestAddress.class ) );
+        verify( confined ).start();
+        verify( confined, times( 1 ) ).call( any( TestAddress.class ) );
+        verify( confined ).stop();
+        reactor.tearDown();
+    }
+}
@@ -17,11 +17,26 @@
  */
 package org.ops4j.pax.exam.spi.reactors;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import org.junit.Test;
+import org.ops4j.pax.exam.TestAddress;
 import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestContainerException;
 import org.ops4j.pax.exam.TestProbeProvider;
 import org.ops4j.pax.exam.spi.StagedExamReactor;
+import org.ops4j.pax.exam.spi.intern.ContainerReaper;
+import org.ops4j.pax.exam.spi.intern.StagingExecutor;
 
 /**
  *
@@ -33,4 +48,50 @@ public class EagerSingleStagedReactorTest extends BaseStagedReactorTest {
     {
         return new EagerSingleStagedReactor( containers, providers );
     }
+
+    @Test
+    public void testParallelStaging()
+    {
+        TestContainer c1 = mock( TestContainer.class );
+        TestContainer c2 = mock( TestContainer.class );
+        TestProbeProvider provider = mock( TestProbeProvider.class );
+        when( provider.getTests() ).thenReturn( new TestAddress[0] );
+
+        StagedExamReactor reactor = new EagerSingleStagedReactor( Arrays.asList( c1, c2 ), Arrays.asList( provider ), new StagingExecutor( 2 ) );
+        assertThat( reactor.getTargets().size(), is( 0 ) );
+        verify( c1 ).start();
+        verify( c2 ).start();
+    }
+
+    @Test
+    public void testFailuresAreReportedPerContainer()
+    {
+        TestContainer healthy = mock( TestContainer.class );
+        TestContainer broken1 = mock( TestContainer.class );
+        TestContainer broken2 = mock( TestContainer.class );
+        when( broken1.start() ).thenThrow( new TestContainerException( "boot1" ) );
+        when( broken2.start() ).thenThrow( new TestContainerException( "boot2" ) );
+
+        try {
+            new EagerSingleStagedReactor( Arrays.asList( healthy, broken1, broken2 ), new ArrayList<TestProbeProvider>(), new StagingExecutor( 3 ) );
+            fail( "Staging should have failed." );
+        } catch( TestContainerException e ) {
+            assertTrue( e.getMessage().contains( "2 of 3" ) );
+            assertTrue( e.getMessage().contains( "boot1" ) );
+            assertTrue( e.getMessage().contains( "boot2" ) );
+        }
+        verify( healthy ).stop();
+    }
+
+    @Test
+    public void testTearDownStopsInBackground()
+    {
+        TestContainer container = mock( TestContainer.class );
+        ContainerReaper reaper = new ContainerReaper( true, 10000 );
+
+        StagedExamReactor reactor = new EagerSingleStagedReactor( Arrays.asList( container ), new ArrayList<TestProbeProvider>(), new StagingExecutor( 1 ), reaper );
+        reactor.tearDown();
+        assertTrue( reaper.await( 10000 ) );
+        verify( container ).stop();
+    }
 }
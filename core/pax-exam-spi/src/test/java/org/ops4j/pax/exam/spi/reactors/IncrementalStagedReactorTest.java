@@ -0,0 +1,161 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.ops4j.pax.exam.CoreOptions.bundle;
+import static org.ops4j.pax.exam.CoreOptions.frameworkProperty;
+import static org.ops4j.pax.exam.CoreOptions.mavenBundle;
+import static org.ops4j.pax.exam.CoreOptions.options;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.ops4j.pax.exam.ExamSystem;
+import org.ops4j.pax.exam.Option;
+import org.ops4j.pax.exam.ReusableTestContainer;
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestContainerFactory;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.spi.StagedConfiguration;
+import org.ops4j.pax.exam.spi.StagedExamReactor;
+import org.ops4j.pax.exam.spi.intern.DefaultTestAddress;
+
+/**
+ *
+ */
+public class IncrementalStagedReactorTest {
+
+    @Test
+    public void testConfigurationsDifferingInBundlesShareContainer()
+        throws Exception
+    {
+        String commonUrl = createBundle( "common" );
+        String extraUrl = createBundle( "extra" );
+
+        ExamSystem system = mock( ExamSystem.class );
+        when( system.getOptions( Option.class ) ).thenReturn( new Option[0] );
+        when( system.fork( any( Option[].class ) ) ).thenReturn( system );
+        TestContainer shared = mock( ReusableTestContainer.class );
+        TestContainer other = mock( ReusableTestContainer.class );
+        when( shared.install( eq( extraUrl ), any( InputStream.class ) ) ).thenReturn( 7L );
+        TestContainerFactory factory = mock( TestContainerFactory.class );
+        when( factory.create( any( ExamSystem.class ) ) ).thenReturn( new TestContainer[]{ shared }, new TestContainer[]{ other } );
+        TestProbeProvider probe = mock( TestProbeProvider.class );
+        when( probe.getTests() ).thenReturn( new TestAddress[]{ new DefaultTestAddress( "a" ) } );
+
+        StagedExamReactor reactor = new IncrementalStagedReactor( Arrays.asList(
+            new StagedConfiguration( system, options( bundle( commonUrl ) ), factory ),
+            new StagedConfiguration( system, options( bundle( commonUrl ), bundle( extraUrl ) ), factory ),
+            new StagedConfiguration( system, options( bundle( commonUrl ), frameworkProperty( "foo" ).value( "bar" ) ), factory )
+        ), Arrays.asList( probe ) );
+        assertThat( reactor.getTargets().size(), is( 3 ) );
+        verify( factory, times( 2 ) ).create( any( ExamSystem.class ) );
+
+        for( TestAddress address : reactor.getTargets() ) {
+            reactor.invoke( address );
+        }
+        verify( shared, times( 1 ) ).install( eq( extraUrl ), any( InputStream.class ) );
+        verify( shared, times( 0 ) ).install( eq( commonUrl ), any( InputStream.class ) );
+        verify( shared, times( 2 ) ).call( any( TestAddress.class ) );
+        verify( other, times( 0 ) ).install( anyString(), any( InputStream.class ) );
+        verify( other ).call( any( TestAddress.class ) );
+        reactor.tearDown();
+    }
+
+    @Test
+    public void testContainersThatCannotUninstallAreNotShared()
+        throws Exception
+    {
+        String commonUrl = createBundle( "common" );
+        String extraUrl = createBundle( "extra" );
+
+        ExamSystem system = mock( ExamSystem.class );
+        when( system.getOptions( Option.class ) ).thenReturn( new Option[0] );
+        when( system.fork( any( Option[].class ) ) ).thenReturn( system );
+        TestContainer container = mock( TestContainer.class );
+        TestContainerFactory factory = mock( TestContainerFactory.class );
+        when( factory.create( any( ExamSystem.class ) ) ).thenReturn( new TestContainer[]{ container } );
+        TestProbeProvider probe = mock( TestProbeProvider.class );
+        when( probe.getTests() ).thenReturn( new TestAddress[]{ new DefaultTestAddress( "a" ) } );
+
+        StagedExamReactor reactor = new IncrementalStagedReactor( Arrays.asList(
+            new StagedConfiguration( system, options( bundle( commonUrl ) ), factory ),
+            new StagedConfiguration( system, options( bundle( commonUrl ), bundle( extraUrl ) ), factory )
+        ), Arrays.asList( probe ) );
+        assertThat( reactor.getTargets().size(), is( 2 ) );
+
+        for( TestAddress address : reactor.getTargets() ) {
+            reactor.invoke( address );
+        }
+        // shared attempt plus one for each configuration
+        verify( factory, times( 3 ) ).create( any( ExamSystem.class ) );
+        verify( container, times( 0 ) ).install( anyString(), any( InputStream.class ) );
+        reactor.tearDown();
+    }
+
+    @Test
+    public void testBundlesOnlyContainersCanResolveAreNotInstalledIncrementally()
+        throws Exception
+    {
+        String commonUrl = createBundle( "common" );
+
+        ExamSystem system = mock( ExamSystem.class );
+        when( system.getOptions( Option.class ) ).thenReturn( new Option[0] );
+        when( system.fork( any( Option[].class ) ) ).thenReturn( system );
+        TestContainer container = mock( ReusableTestContainer.class );
+        TestContainerFactory factory = mock( TestContainerFactory.class );
+        when( factory.create( any( ExamSystem.class ) ) ).thenReturn( new TestContainer[]{ container } );
+        TestProbeProvider probe = mock( TestProbeProvider.class );
+        when( probe.getTests() ).thenReturn( new TestAddress[]{ new DefaultTestAddress( "a" ) } );
+
+        StagedExamReactor reactor = new IncrementalStagedReactor( Arrays.asList(
+            new StagedConfiguration( system, options( bundle( commonUrl ) ), factory ),
+            new StagedConfiguration( system, options( bundle( commonUrl ), mavenBundle( "org.foo", "foo", "1.0" ) ), factory )
+        ), Arrays.asList( probe ) );
+
+        for( TestAddress address : reactor.getTargets() ) {
+            reactor.invoke( address );
+        }
+        verify( factory, times( 2 ) ).create( any( ExamSystem.class ) );
+        verify( container, times( 0 ) ).install( anyString(), any( InputStream.class ) );
+        reactor.tearDown();
+    }
+
+    private static String createBundle( String name )
+        throws IOException
+    {
+        File file = File.createTempFile( name, ".jar" );
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream( file );
+        out.write( name.getBytes() );
+        out.close();
+        return file.toURI().toURL().toExternalForm();
+    }
+}
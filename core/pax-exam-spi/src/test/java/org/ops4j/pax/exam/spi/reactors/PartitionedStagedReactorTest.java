@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.ops4j.pax.exam.CoreOptions.options;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.ops4j.pax.exam.ExamSystem;
+import org.ops4j.pax.exam.Option;
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestContainerFactory;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.spi.ParallelStagedExamReactor;
+import org.ops4j.pax.exam.spi.StagedConfiguration;
+import org.ops4j.pax.exam.spi.intern.DefaultTestAddress;
+import org.ops4j.pax.exam.spi.intern.StagingExecutor;
+
+/**
+ *
+ */
+public class PartitionedStagedReactorTest {
+
+    @Test
+    public void testTargetsAreSpreadAcrossClones()
+        throws Exception
+    {
+        TestContainer c1 = mock( TestContainer.class );
+        TestContainer c2 = mock( TestContainer.class );
+        TestContainer c3 = mock( TestContainer.class );
+        TestContainerFactory factory = mock( TestContainerFactory.class );
+        when( factory.create( any( ExamSystem.class ) ) ).thenReturn( new TestContainer[]{ c1 }, new TestContainer[]{ c2 }, new TestContainer[]{ c3 } );
+        ExamSystem system = mock( ExamSystem.class );
+        TestProbeProvider probe = mock( TestProbeProvider.class );
+        when( probe.getTests() ).thenReturn( new TestAddress[]{ new DefaultTestAddress( "a" ), new DefaultTestAddress( "b" ), new DefaultTestAddress( "c" ) } );
+
+        ParallelStagedExamReactor reactor = createReactor( system, factory, probe );
+        assertThat( reactor.getParallelism(), is( 3 ) );
+        assertThat( reactor.getTargets().size(), is( 3 ) );
+        for( TestAddress address : reactor.getTargets() ) {
+            reactor.invoke( address );
+        }
+        for( TestContainer c : Arrays.asList( c1, c2, c3 ) ) {
+            verify( c ).start();
+            verify( c ).call( any( TestAddress.class ) );
+        }
+        reactor.tearDown();
+        verify( c1 ).stop();
+    }
+
+    private ParallelStagedExamReactor createReactor( ExamSystem system, TestContainerFactory factory, TestProbeProvider probe )
+        throws IOException
+    {
+        when( system.fork( any( Option[].class ) ) ).thenReturn( system );
+        StagedConfiguration configuration = new StagedConfiguration( system, options(), factory );
+        return new PartitionedStagedReactor( Arrays.asList( configuration ), Arrays.asList( probe ), 3, new StagingExecutor( 1 ) );
+    }
+}
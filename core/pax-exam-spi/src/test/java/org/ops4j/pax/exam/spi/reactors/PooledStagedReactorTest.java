@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.ops4j.pax.exam.CoreOptions.options;
+import static org.ops4j.pax.exam.CoreOptions.systemProperty;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.ops4j.pax.exam.ExamSystem;
+import org.ops4j.pax.exam.Option;
+import org.ops4j.pax.exam.ReusableTestContainer;
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestContainerFactory;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.spi.StagedConfiguration;
+import org.ops4j.pax.exam.spi.StagedExamReactor;
+
+/**
+ *
+ */
+public class PooledStagedReactorTest {
+
+    @Test
+    public void testContainerIsReusedForEqualConfiguration()
+        throws IOException
+    {
+        ReusableTestContainer container = mock( ReusableTestContainer.class );
+        when( container.install( any( InputStream.class ) ) ).thenReturn( 42L );
+        TestContainerFactory factory = mock( TestContainerFactory.class );
+        when( factory.create( any( ExamSystem.class ) ) ).thenReturn( new TestContainer[]{ container } );
+        ContainerPool pool = new ContainerPool( 1, 0 );
+
+        stageAndTearDown( factory, pool, options( systemProperty( "foo" ).value( "bar" ) ) );
+        stageAndTearDown( factory, pool, options( systemProperty( "foo" ).value( "bar" ) ) );
+
+        verify( factory, times( 1 ) ).create( any( ExamSystem.class ) );
+        verify( container, times( 1 ) ).start();
+        verify( container, times( 2 ) ).uninstall( 42L );
+        assertThat( pool.getIdleCount(), is( 1 ) );
+
+        pool.shutdown();
+        verify( container ).stop();
+    }
+
+    @Test
+    public void testContainerThatCannotUninstallIsNotReused()
+        throws IOException
+    {
+        TestContainer container = mock( TestContainer.class );
+        TestContainerFactory factory = mock( TestContainerFactory.class );
+        when( factory.create( any( ExamSystem.class ) ) ).thenReturn( new TestContainer[]{ container } );
+        ContainerPool pool = new ContainerPool( 1, 0 );
+
+        stageAndTearDown( factory, pool, options( systemProperty( "foo" ).value( "bar" ) ) );
+
+        verify( container ).stop();
+        assertThat( pool.getIdleCount(), is( 0 ) );
+        pool.shutdown();
+    }
+
+    @Test
+    public void testIdleContainersAreEvictedByCount()
+        throws IOException
+    {
+        TestContainer c1 = mock( ReusableTestContainer.class );
+        TestContainer c2 = mock( ReusableTestContainer.class );
+        TestContainerFactory factory = mock( TestContainerFactory.class );
+        when( factory.create( any( ExamSystem.class ) ) ).thenReturn( new TestContainer[]{ c1 }, new TestContainer[]{ c2 } );
+        ContainerPool pool = new ContainerPool( 1, 0 );
+
+        stageAndTearDown( factory, pool, options( systemProperty( "foo" ).value( "bar" ) ) );
+        stageAndTearDown( factory, pool, options( systemProperty( "foo" ).value( "other" ) ) );
+
+        verify( c1 ).stop();
+        assertThat( pool.getIdleCount(), is( 1 ) );
+        pool.shutdown();
+    }
+
+    @Test
+    public void testContainerOfUnknownOptionsIsNotReused()
+        throws IOException
+    {
+        TestContainer container = mock( ReusableTestContainer.class );
+        TestContainerFactory factory = mock( TestContainerFactory.class );
+        when( factory.create( any( ExamSystem.class ) ) ).thenReturn( new TestContainer[]{ container } );
+        ContainerPool pool = new ContainerPool( 1, 0 );
+        Option unknown = new Option() {
+        };
+
+        stageAndTearDown( factory, pool, options( unknown ) );
+        stageAndTearDown( factory, pool, options( unknown ) );
+
+        verify( factory, times( 2 ) ).create( any( ExamSystem.class ) );
+        verify( container, times( 2 ) ).stop();
+        assertThat( pool.getIdleCount(), is( 0 ) );
+        pool.shutdown();
+    }
+
+    @Test
+    public void testFingerprint()
+    {
+        ExamSystem system = mock( ExamSystem.class );
+        when( system.getOptions( Option.class ) ).thenReturn( new Option[0] );
+        TestContainerFactory factory = mock( TestContainerFactory.class );
+
+        String a = new StagedConfiguration( system, options( systemProperty( "foo" ).value( "bar" ) ), factory ).getFingerprint();
+        String b = new StagedConfiguration( system, options( systemProperty( "foo" ).value( "bar" ) ), factory ).getFingerprint();
+        String c = new StagedConfiguration( system, options( systemProperty( "foo" ).value( "baz" ) ), factory ).getFingerprint();
+        assertThat( a, is( b ) );
+        assertThat( a, is( not( c ) ) );
+    }
+
+    private void stageAndTearDown( TestContainerFactory factory, ContainerPool pool, Option[] options )
+        throws IOException
+    {
+        ExamSystem system = mock( ExamSystem.class );
+        when( system.getOptions( Option.class ) ).thenReturn( new Option[0] );
+        TestProbeProvider probe = mock( TestProbeProvider.class );
+        when( probe.getTests() ).thenReturn( new TestAddress[0] );
+        when( probe.getStream() ).thenReturn( new ByteArrayInputStream( new byte[0] ) );
+
+        StagedExamReactor reactor = new PooledStagedReactor( Arrays.asList( new StagedConfiguration( system, options, factory ) ), Arrays.asList( probe ), pool );
+        reactor.tearDown();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestContainerException;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.spi.StagedExamReactor;
+import org.ops4j.pax.exam.spi.intern.ContainerReaper;
+import org.ops4j.pax.exam.spi.intern.DefaultTestAddress;
+
+/**
+ *
+ */
+public class SequentialStagedReactorTest extends BaseStagedReactorTest {
+
+    @Override
+    protected StagedExamReactor getReactor( List<TestContainer> containers, List<TestProbeProvider> providers )
+    {
+        return new SequentialStagedReactor( containers, providers, new ContainerReaper( false, 0 ) );
+    }
+
+    @Test
+    public void testOnlyOneContainerRunsAtATime()
+        throws Exception
+    {
+        TestContainer c1 = mock( TestContainer.class );
+        TestContainer c2 = mock( TestContainer.class );
+        TestProbeProvider provider = mock( TestProbeProvider.class );
+        when( provider.getTests() ).thenReturn( new TestAddress[]{ new DefaultTestAddress( "a" ), new DefaultTestAddress( "b" ) } );
+
+        StagedExamReactor reactor = getReactor( Arrays.asList( c1, c2 ), Arrays.asList( provider ) );
+        verify( c1, never() ).start();
+        verify( c2, never() ).start();
+
+        for( TestAddress address : reactor.getTargets() ) {
+            reactor.invoke( address );
+        }
+        InOrder order = inOrder( c1, c2 );
+        order.verify( c1 ).start();
+        order.verify( c1 ).stop();
+        order.verify( c2 ).start();
+        order.verify( c2 ).stop();
+    }
+
+    @Test
+    public void testContainerThatFailedToStartIsNotStopped()
+        throws Exception
+    {
+        TestContainer c1 = mock( TestContainer.class );
+        doThrow( new TestContainerException( "boom" ) ).when( c1 ).start();
+        TestProbeProvider provider = mock( TestProbeProvider.class );
+        when( provider.getTests() ).thenReturn( new TestAddress[]{ new DefaultTestAddress( "a" ) } );
+
+        StagedExamReactor reactor = getReactor( Arrays.asList( c1 ), Arrays.asList( provider ) );
+        try {
+            reactor.invoke( reactor.getTargets().iterator().next() );
+            fail( "start failure expected" );
+        } catch( TestContainerException e ) {
+            // expected
+        }
+        reactor.tearDown();
+        verify( c1, never() ).stop();
+    }
+
+    @Test
+    public void testContainerIsStoppedOnCallingThreadAfterLastTarget()
+        throws Exception
+    {
+        TestContainer c1 = mock( TestContainer.class );
+        TestProbeProvider provider = mock( TestProbeProvider.class );
+        when( provider.getTests() ).thenReturn( new TestAddress[]{ new DefaultTestAddress( "a" ) } );
+
+        // a reaper stopping in background would not have stopped the container yet.
+        StagedExamReactor reactor = new SequentialStagedReactor( Arrays.asList( c1 ), Arrays.asList( provider ), new ContainerReaper( true, 0 ) );
+        reactor.invoke( reactor.getTargets().iterator().next() );
+        verify( c1 ).stop();
+    }
+}
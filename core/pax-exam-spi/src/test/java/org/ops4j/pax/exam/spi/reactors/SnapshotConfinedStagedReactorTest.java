@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.spi.reactors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.ops4j.pax.exam.CoreOptions.options;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.ops4j.io.FileUtils;
+import org.ops4j.pax.exam.ExamSystem;
+import org.ops4j.pax.exam.Option;
+import org.ops4j.pax.exam.TestAddress;
+import org.ops4j.pax.exam.TestContainer;
+import org.ops4j.pax.exam.TestContainerFactory;
+import org.ops4j.pax.exam.TestProbeProvider;
+import org.ops4j.pax.exam.spi.StagedConfiguration;
+import org.ops4j.pax.exam.spi.StagedExamReactor;
+import org.ops4j.pax.exam.spi.intern.DefaultTestAddress;
+
+import com.google.common.io.Files;
+
+/**
+ *
+ */
+public class SnapshotConfinedStagedReactorTest {
+
+    @Test
+    public void testTemplateIsStartedOnceAndCloneForEachTest()
+        throws Exception
+    {
+        File temp = Files.createTempDir();
+        ExamSystem system = mock( ExamSystem.class );
+        when( system.getTempFolder() ).thenReturn( temp );
+        when( system.fork( any( Option[].class ) ) ).thenReturn( system );
+        TestContainer template = mock( TestContainer.class );
+        TestContainer clone1 = mock( TestContainer.class );
+        TestContainer clone2 = mock( TestContainer.class );
+        TestContainerFactory factory = mock( TestContainerFactory.class );
+        when( factory.create( any( ExamSystem.class ) ) ).thenReturn( new TestContainer[]{ template }, new TestContainer[]{ clone1 }, new TestContainer[]{ clone2 } );
+        TestProbeProvider probe = mock( TestProbeProvider.class );
+        when( probe.getTests() ).thenReturn( new TestAddress[]{ new DefaultTestAddress( "a" ), new DefaultTestAddress( "b" ) } );
+
+        StagedExamReactor reactor = new SnapshotConfinedStagedReactor( Arrays.asList( new StagedConfiguration( system, options(), factory ) ), Arrays.asList( probe ) );
+        verify( template ).start();
+        verify( template ).stop();
+
+        for( TestAddress address : reactor.getTargets() ) {
+            reactor.invoke( address );
+        }
+        for( TestContainer clone : Arrays.asList( clone1, clone2 ) ) {
+            verify( clone ).start();
+            verify( clone ).call( any( TestAddress.class ) );
+            verify( clone ).stop();
+        }
+        verify( factory, times( 3 ) ).create( any( ExamSystem.class ) );
+
+        reactor.tearDown();
+        assertThat( temp.list().length, is( 0 ) );
+        FileUtils.delete( temp );
+    }
+}
@@ -75,4 +75,29 @@ public class ConfigurationManager
     {
         return resolver.get( key );
     }
+
+    /**
+     * @param key          configuration key
+     * @param defaultValue value to be used if the key is not set
+     *
+     * @return configured value or default.
+     *
+     * @throws TestContainerException if the value is not a number.
+     */
+    public int getIntProperty( String key, int defaultValue )
+    {
+        String value = getProperty( key );
+        if( value == null || value.trim().length() == 0 )
+        {
+            return defaultValue;
+        }
+        try
+        {
+            return Integer.parseInt( value.trim() );
+        }
+        catch ( NumberFormatException exc )
+        {
+            throw new TestContainerException( "Invalid value " + value + " for " + key + ", a number is expected." );
+        }
+    }
 }
@@ -74,4 +74,114 @@ public interface Constants {
 
     /** Test exam system with predefined options for Exam's own bundles etc.  */
     static final String EXAM_SYSTEM_TEST = "test";
+
+    /**
+     * Configuration key for the number of threads used by the reactor to create, start and provision
+     * containers. The default (1) stages all containers one after the other on the calling thread.
+     */
+    static final String EXAM_REACTOR_THREADS_KEY = "pax.exam.reactor.threads";
+
+    /**
+     * Configuration key for the maximum number of idle containers kept alive by the container pool
+     * (see PooledStagedReactorFactory). Default is 4.
+     */
+    static final String EXAM_POOL_MAX_IDLE_KEY = "pax.exam.pool.maxIdle";
+
+    /**
+     * Configuration key for the time in milliseconds an idle pooled container is kept alive before it is stopped.
+     * Default is 5 minutes.
+     */
+    static final String EXAM_POOL_IDLE_TIMEOUT_KEY = "pax.exam.pool.idleTimeout";
+
+    /**
+     * Configuration key for the number of identical containers started per configuration by the partitioned
+     * reactor (see PartitionedStagedReactorFactory). Defaults to the number of available processors.
+     */
+    static final String EXAM_REACTOR_PARTITIONS_KEY = "pax.exam.reactor.partitions";
+
+    /**
+     * Configuration key to stop containers in background when a reactor is torn down ("true"), so the next test class
+     * does not wait for them. Containers are stopped on the calling thread by default.
+     */
+    static final String EXAM_REAPER_KEY = "pax.exam.reaper";
+
+    /**
+     * Configuration key for the time in milliseconds the JVM waits for a container to be stopped in background before
+     * it exits. It also limits the wait for temporary folders to be deleted in background. Default is 5 minutes.
+     */
+    static final String EXAM_REAPER_TIMEOUT_KEY = "pax.exam.reaper.timeout";
+
+    /**
+     * Configuration key for the number of test classes prepared (reactor staged) in background while another class of
+     * the same suite is running. Default is 1, 0 disables look-ahead.
+     */
+    static final String EXAM_PRESTAGE_LIMIT_KEY = "pax.exam.prestage.limit";
+
+    /**
+     * Configuration key to switch off the probe cache ("false"). Probes built from unchanged content are taken from
+     * the cache in the config folder instead of being rebuilt. The cache is enabled by default.
+     */
+    static final String EXAM_PROBE_CACHE_KEY = "pax.exam.probe.cache";
+
+    /**
+     * Configuration key for the content of probes: "all" (default) takes the whole classes folder of the test,
+     * "closure" only the test classes, the classes reachable from them and the resources of the folder.
+     */
+    static final String EXAM_PROBE_CONTENT_KEY = "pax.exam.probe.content";
+
+    /**
+     * Configuration key for the imports of probes: "dynamic" (default) imports everything dynamically, "static"
+     * computes Import-Package from the bytecode of the probe. Packages given with
+     * {@link org.ops4j.pax.exam.TestProbeBuilder#ignorePackageOf(Class[])} are imported optionally.
+     */
+    static final String EXAM_PROBE_IMPORTS_KEY = "pax.exam.probe.imports";
+
+    /**
+     * Configuration key for the DynamicImport-Package header of probes with static imports (like "org.foo.*"). No
+     * dynamic imports by default.
+     */
+    static final String EXAM_PROBE_DYNAMIC_IMPORTS_KEY = "pax.exam.probe.dynamicImports";
+
+    /**
+     * Configuration key for comma separated globs of files of the classes folder to be put into probes (like
+     * "org/foo/**"). All files by default.
+     */
+    static final String EXAM_PROBE_INCLUDES_KEY = "pax.exam.probe.includes";
+
+    /**
+     * Configuration key for comma separated globs of files of the classes folder to be left out of probes (like
+     * "**&#47;*.txt"). None by default.
+     */
+    static final String EXAM_PROBE_EXCLUDES_KEY = "pax.exam.probe.excludes";
+
+    /**
+     * Configuration key for the compression of probe entries: "deflate" (default), "stored" for probes read on the
+     * same machine (native and forked containers), "parallel" to deflate entries on all processors.
+     */
+    static final String EXAM_PROBE_COMPRESSION_KEY = "pax.exam.probe.compression";
+
+    /**
+     * Configuration key for the scope of probes: "class" (default) builds a probe per test class, "module" builds one
+     * probe with the whole classes folder that is installed once per container, plus a small bundle per test class
+     * that carries its test signatures and requires the shared one.
+     */
+    static final String EXAM_PROBE_SCOPE_KEY = "pax.exam.probe.scope";
+
+    /**
+     * Configuration key to build probes in background ("true"), so containers can be started meanwhile. Installing
+     * the probe waits for the build. Probes are built right away by default.
+     */
+    static final String EXAM_PROBE_ASYNC_KEY = "pax.exam.probe.async";
+
+    /**
+     * Configuration key for where probes are stored: "disk" (default) keeps them in the temporary folder of the
+     * system, "memory" in direct buffers shared by all containers (see {@link #EXAM_STORE_CAPACITY_KEY}).
+     */
+    static final String EXAM_STORE_KEY = "pax.exam.store";
+
+    /**
+     * Configuration key for the number of megabytes an in-memory store keeps at most. Content beyond that is written
+     * to disk. Defaults to 64.
+     */
+    static final String EXAM_STORE_CAPACITY_KEY = "pax.exam.store.capacity";
 }
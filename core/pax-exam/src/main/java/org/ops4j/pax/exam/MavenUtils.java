@@ -17,13 +17,14 @@
  */
 package org.ops4j.pax.exam;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.net.URISyntaxException;
+import java.io.InputStream;
 import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.WeakHashMap;
 import org.ops4j.pax.exam.options.MavenArtifactUrlReference;
 
 /**
@@ -35,6 +36,14 @@ import org.ops4j.pax.exam.options.MavenArtifactUrlReference;
 public class MavenUtils
 {
 
+    private static final String DEPENDENCIES_FILE = "META-INF/maven/dependencies.properties";
+
+    /**
+     * Parsed dependencies files by class loader they were found with.
+     */
+    private static final Map<ClassLoader, Map<String, String>> DEPENDENCIES =
+        new WeakHashMap<ClassLoader, Map<String, String>>();
+
     /**
      * Utility class. Ment to be used via the static factory methods.
      */
@@ -57,28 +66,44 @@ public class MavenUtils
     public static String getArtifactVersion( final String groupId,
                                              final String artifactId )
     {
-        final Properties dependencies = new Properties();
+        return getArtifactVersion( MavenUtils.class.getClassLoader(), groupId, artifactId );
+    }
+
+    /**
+     * Gets the artifact version out of the dependencies file visible to the class loader. The file is read once per
+     * class loader.
+     *
+     * @param classLoader class loader to look up the dependencies file with
+     * @param groupId     artifact group id
+     * @param artifactId  artifact id
+     *
+     * @return found version
+     *
+     * @throws RuntimeException - If artifact version cannot be found
+     */
+    static String getArtifactVersion( final ClassLoader classLoader,
+                                      final String groupId,
+                                      final String artifactId )
+    {
+        final String version;
         try
         {
-            dependencies.load(
-                new FileInputStream( getFileFromClasspath( "META-INF/maven/dependencies.properties" ) )
-            );
-            final String version = dependencies.getProperty( groupId + "/" + artifactId + "/version" );
-            if( version == null )
-            {
-                throw new RuntimeException(
-                    "Could not resolve version. Do you have a dependency for " + groupId + "/" + artifactId
-                    + " in your maven project?"
-                );
-            }
-            return version;
+            version = getDependencies( classLoader ).get( groupId + "/" + artifactId + "/version" );
         }
         catch( IOException e )
         {
             throw new RuntimeException(
-                "Could not resolve version for groupId:" + groupId + " artifactId:" + artifactId + " by reading the dependency information generated by maven.", e  
+                "Could not resolve version for groupId:" + groupId + " artifactId:" + artifactId + " by reading the dependency information generated by maven.", e
             );
         }
+        if( version == null )
+        {
+            throw new RuntimeException(
+                "Could not resolve version. Do you have a dependency for " + groupId + "/" + artifactId
+                + " in your maven project?"
+            );
+        }
+        return version;
     }
 
     /**
@@ -104,30 +129,61 @@ public class MavenUtils
     }
 
     /**
-     * Searches the classpath for the file denoted by the file path and returns the corresponding file.
+     * Reads the dependencies file visible to the class loader, or takes it from the cache if it has been read before.
+     * The file may also be packaged into a jar.
      *
-     * @param filePath path to the file
+     * @param classLoader class loader to look up the dependencies file with
      *
-     * @return a file corresponding to the path
+     * @return immutable map of dependency properties
      *
-     * @throws java.io.FileNotFoundException if the file cannot be found
+     * @throws IOException if the file cannot be found or read
      */
-    private static File getFileFromClasspath( final String filePath )
-        throws FileNotFoundException
+    static Map<String, String> getDependencies( final ClassLoader classLoader )
+        throws IOException
     {
-        try
+        final ClassLoader loader = classLoader != null ? classLoader : ClassLoader.getSystemClassLoader();
+        synchronized( DEPENDENCIES )
         {
-            URL fileURL = MavenUtils.class.getClassLoader().getResource( filePath );
-            if( fileURL == null )
+            final Map<String, String> cached = DEPENDENCIES.get( loader );
+            if( cached != null )
             {
-                throw new FileNotFoundException( "File [" + filePath + "] could not be found in classpath" );
+                return cached;
             }
-            return new File( fileURL.toURI() );
         }
-        catch( URISyntaxException e )
+        final URL url = loader.getResource( DEPENDENCIES_FILE );
+        if( url == null )
+        {
+            throw new IOException(
+                "File [" + DEPENDENCIES_FILE + "] could not be found in classpath."
+                + " It has to be generated by the depends-maven-plugin (goal generate-depends-file)."
+            );
+        }
+        final Properties properties = new Properties();
+        final InputStream in = url.openStream();
+        try
         {
-            throw new FileNotFoundException( "File [" + filePath + "] could not be found: " + e.getMessage() );
+            properties.load( in );
+        }
+        finally
+        {
+            in.close();
+        }
+        final Map<String, String> dependencies = new HashMap<String, String>();
+        for( Object key : properties.keySet() )
+        {
+            dependencies.put( key.toString(), properties.getProperty( key.toString() ) );
+        }
+        synchronized( DEPENDENCIES )
+        {
+            final Map<String, String> cached = DEPENDENCIES.get( loader );
+            if( cached != null )
+            {
+                return cached;
+            }
+            final Map<String, String> immutable = Collections.unmodifiableMap( dependencies );
+            DEPENDENCIES.put( loader, immutable );
+            return immutable;
         }
     }
 
-}
\ No newline at end of file
+}
@@ -18,10 +18,14 @@
 package org.ops4j.pax.exam;
 
 import java.lang.reflect.Array;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.ops4j.pax.exam.options.CompositeOption;
+import org.ops4j.pax.exam.options.ProvisionOption;
 
 /**
  * Utility methods related to {@link Option}s.
@@ -41,8 +45,8 @@ public class OptionUtils
     }
 
     /**
-     * Expand options to one level by expanding eventual {@link CompositeOption}. During this process null options are
-     * eliminated.
+     * Expand options by expanding eventual {@link CompositeOption}s, including composites within composites. During
+     * this process null options are eliminated.
      *
      * @param options options to be expanded (can be null or an empty array)
      *
@@ -51,6 +55,12 @@ public class OptionUtils
     public static Option[] expand( final Option... options )
     {
         final List<Option> expanded = new ArrayList<Option>();
+        expand( expanded, options );
+        return expanded.toArray( new Option[expanded.size()] );
+    }
+
+    private static void expand( final List<Option> expanded, final Option[] options )
+    {
         if( options != null )
         {
             for( Option option : options )
@@ -59,7 +69,7 @@ public class OptionUtils
                 {
                     if( option instanceof CompositeOption )
                     {
-                        expanded.addAll( Arrays.asList( ( (CompositeOption) option ).getOptions() ) );
+                        expand( expanded, ( (CompositeOption) option ).getOptions() );
                     }
                     else
                     {
@@ -68,7 +78,91 @@ public class OptionUtils
                 }
             }
         }
-        return expanded.toArray( new Option[expanded.size()] );
+    }
+
+    /**
+     * Expands options (see {@link #expand(Option[])}) and keeps one {@link ProvisionOption} per bundle. Provision
+     * options are the same bundle if their urls are the same after canonicalization (see {@link #canonicalUrl(String)}).
+     * The last one wins, with its start level and start flag, but takes the position of the first one.
+     *
+     * @param options options to be normalized (can be null or an empty array)
+     *
+     * @return normalized options (never null)
+     */
+    public static Option[] normalize( final Option... options )
+    {
+        final List<Option> normalized = new ArrayList<Option>();
+        final Map<String, Integer> positions = new HashMap<String, Integer>();
+        for( Option option : expand( options ) )
+        {
+            String key = option instanceof ProvisionOption ? getUrl( (ProvisionOption) option ) : null;
+            if( key == null )
+            {
+                normalized.add( option );
+                continue;
+            }
+            key = canonicalUrl( key );
+            Integer position = positions.get( key );
+            if( position == null )
+            {
+                positions.put( key, normalized.size() );
+                normalized.add( option );
+            }
+            else
+            {
+                normalized.set( position, option );
+            }
+        }
+        return normalized.toArray( new Option[normalized.size()] );
+    }
+
+    /**
+     * Canonicalizes a provisioning url: surrounding whitespace is removed, "mvn:" urls lose a trailing default type
+     * ("/jar") and other urls are normalized as {@link URI}s (like "file:/a/../b.jar" to "file:/b.jar").
+     *
+     * @param url url to canonicalize
+     *
+     * @return canonical url
+     */
+    public static String canonicalUrl( final String url )
+    {
+        String canonical = url.trim();
+        if( canonical.startsWith( "mvn:" ) )
+        {
+            while( canonical.endsWith( "/" ) )
+            {
+                canonical = canonical.substring( 0, canonical.length() - 1 );
+            }
+            String coordinates = canonical.substring( canonical.indexOf( '!' ) + 1 );
+            if( coordinates.split( "/" ).length == 4 && canonical.endsWith( "/jar" ) )
+            {
+                canonical = canonical.substring( 0, canonical.length() - 4 );
+            }
+            return canonical;
+        }
+        try
+        {
+            return new URI( canonical ).normalize().toString();
+        }
+        catch( URISyntaxException e )
+        {
+            return canonical;
+        }
+    }
+
+    /**
+     * @return url of the option or null if it cannot be resolved yet (like a version to be taken from the project).
+     */
+    private static String getUrl( final ProvisionOption option )
+    {
+        try
+        {
+            return option.getURL();
+        }
+        catch( RuntimeException e )
+        {
+            return null;
+        }
     }
 
     /**
@@ -0,0 +1,35 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam;
+
+/**
+ * A {@link TestContainer} that can drop bundles again while it is running.
+ * This lets a running container be reused for another set of probes.
+ *
+ * Implementing it is optional. Reactors that reuse containers check for it and start fresh containers otherwise.
+ */
+public interface ReusableTestContainer extends TestContainer {
+
+    /**
+     * Uninstalls a bundle that has been installed before using one of the install methods.
+     *
+     * @param bundleId id of bundle as returned by install.
+     *
+     * @throws TestContainerException if the bundle cannot be uninstalled.
+     */
+    void uninstall( long bundleId ) throws TestContainerException;
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Test;
+
+public class MavenUtilsTest
+{
+
+    @Test
+    public void versionFromJarEmbeddedFile()
+        throws IOException
+    {
+        ClassLoader loader = createLoader( "org.foo/bar/version = 1.2.3\n" );
+
+        assertThat( MavenUtils.getArtifactVersion( loader, "org.foo", "bar" ), is( "1.2.3" ) );
+    }
+
+    @Test
+    public void dependenciesAreReadOnce()
+        throws IOException
+    {
+        ClassLoader loader = createLoader( "org.foo/bar/version = 1.2.3\n" );
+
+        assertThat( MavenUtils.getDependencies( loader ), sameInstance( MavenUtils.getDependencies( loader ) ) );
+    }
+
+    @Test( expected = UnsupportedOperationException.class )
+    public void dependenciesAreImmutable()
+        throws IOException
+    {
+        MavenUtils.getDependencies( createLoader( "" ) ).put( "org.foo/bar/version", "1.0" );
+    }
+
+    @Test( expected = RuntimeException.class )
+    public void unknownArtifact()
+        throws IOException
+    {
+        MavenUtils.getArtifactVersion( createLoader( "org.foo/bar/version = 1.2.3\n" ), "org.foo", "baz" );
+    }
+
+    @Test( expected = RuntimeException.class )
+    public void missingDependenciesFile()
+    {
+        MavenUtils.getArtifactVersion( new URLClassLoader( new URL[0], null ), "org.foo", "bar" );
+    }
+
+    private static ClassLoader createLoader( String dependencies )
+        throws IOException
+    {
+        File jar = File.createTempFile( "pax-exam-test", ".jar" );
+        jar.deleteOnExit();
+        JarOutputStream out = new JarOutputStream( new FileOutputStream( jar ) );
+        out.putNextEntry( new JarEntry( "META-INF/maven/dependencies.properties" ) );
+        out.write( dependencies.getBytes( "ISO-8859-1" ) );
+        out.close();
+        return new URLClassLoader( new URL[]{ jar.toURI().toURL() }, null );
+    }
+}
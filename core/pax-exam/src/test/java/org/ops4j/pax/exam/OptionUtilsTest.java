@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.ops4j.pax.exam.CoreOptions.*;
+
+import org.junit.Test;
+import org.ops4j.pax.exam.options.ProvisionOption;
+import org.ops4j.pax.exam.options.SystemPropertyOption;
+
+public class OptionUtilsTest
+{
+
+    @Test
+    public void expandNestedComposites()
+    {
+        Option[] options = OptionUtils.expand(
+            composite( systemProperty( "a" ), composite( systemProperty( "b" ), composite( systemProperty( "c" ) ) ) ),
+            null
+        );
+        assertThat( options.length, is( 3 ) );
+        assertThat( ( (SystemPropertyOption) options[ 2 ] ).getKey(), is( "c" ) );
+    }
+
+    @Test
+    public void normalizeKeepsOneBundle()
+    {
+        Option[] options = OptionUtils.normalize(
+            mavenBundle( "org.foo", "bar", "1.0" ).startLevel( 3 ),
+            bundle( "file:/tmp/a.jar" ),
+            composite( bundle( "mvn:org.foo/bar/1.0/jar" ).startLevel( 5 ).noStart(), systemProperty( "a" ) ),
+            bundle( "file:/tmp/x/../a.jar" )
+        );
+
+        assertThat( options.length, is( 3 ) );
+        ProvisionOption bar = (ProvisionOption) options[ 0 ];
+        assertThat( bar.getStartLevel(), is( 5 ) );
+        assertThat( bar.shouldStart(), is( false ) );
+        assertThat( ( (ProvisionOption) options[ 1 ] ).getURL(), is( "file:/tmp/x/../a.jar" ) );
+        assertThat( options[ 2 ] instanceof SystemPropertyOption, is( true ) );
+    }
+
+    @Test
+    public void canonicalUrl()
+    {
+        assertThat( OptionUtils.canonicalUrl( " mvn:org.foo/bar/1.0/jar " ), is( "mvn:org.foo/bar/1.0" ) );
+        assertThat( OptionUtils.canonicalUrl( "mvn:http://repo!org.foo/bar/1.0/jar" ), is( "mvn:http://repo!org.foo/bar/1.0" ) );
+        assertThat( OptionUtils.canonicalUrl( "mvn:org.foo/bar/1.0/jar/tests" ), is( "mvn:org.foo/bar/1.0/jar/tests" ) );
+        assertThat( OptionUtils.canonicalUrl( "file:/tmp/x/../a.jar" ), is( "file:/tmp/a.jar" ) );
+    }
+}
@@ -25,9 +25,10 @@ import org.ops4j.pax.exam.spi.reactors.AllConfinedStagedReactorFactory;
 
 /**
  * Define the invokation strategy.
+ * On a test method, it overrides the strategy of the class for that test only.
  */
 @Retention( RetentionPolicy.RUNTIME )
-@Target( { ElementType.TYPE } )
+@Target( { ElementType.TYPE, ElementType.METHOD } )
 @Inherited
 public @interface ExamReactorStrategy
 {
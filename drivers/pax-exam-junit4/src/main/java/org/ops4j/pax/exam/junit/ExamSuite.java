@@ -0,0 +1,321 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.junit;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.Runner;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.manipulation.NoTestsRemainException;
+import org.junit.runner.manipulation.Sorter;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.ParentRunner;
+import org.junit.runners.Suite.SuiteClasses;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerBuilder;
+import org.ops4j.pax.exam.ConfigurationManager;
+import org.ops4j.pax.exam.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A suite that prepares the next test classes while the current one is running.
+ *
+ * Creating a {@link JUnit4TestRunner} stages its reactor (which usually means starting containers). A plain JUnit
+ * suite creates all runners up front, one after the other. This suite creates the runner of a class only shortly
+ * before it is needed: while class N is running, the runners of up to {@link Constants#EXAM_PRESTAGE_LIMIT_KEY}
+ * following classes (default 1) are created in background. A limit of 0 disables look-ahead.
+ *
+ * Until a class has run, it is described by its {@link Test} methods, so describing the suite does not create any
+ * runners. Filters and sorters given to the suite are recorded and applied to each runner when it is created; a class
+ * without tests left is skipped.
+ *
+ * Usage:
+ * <pre>
+ * &#64;RunWith( ExamSuite.class )
+ * &#64;SuiteClasses( { FirstTest.class, SecondTest.class } )
+ * public class AllTests {}
+ * </pre>
+ */
+public class ExamSuite extends ParentRunner<Class<?>> {
+
+    private static Logger LOG = LoggerFactory.getLogger( ExamSuite.class );
+
+    final private List<Class<?>> m_classes;
+    // the classes in the order they will run (after filtering and sorting), used to look ahead
+    final private List<Class<?>> m_order;
+    final private List<Filter> m_filters = new ArrayList<Filter>();
+    final private List<Sorter> m_sorters = new ArrayList<Sorter>();
+    final private RunnerBuilder m_builder;
+    final private int m_limit;
+    final private Map<Class<?>, Future<Runner>> m_staged = new LinkedHashMap<Class<?>, Future<Runner>>();
+    final private Map<Class<?>, Description> m_descriptions = new HashMap<Class<?>, Description>();
+    private ExecutorService m_executor;
+
+    public ExamSuite( Class<?> klass, RunnerBuilder builder )
+        throws InitializationError
+    {
+        super( klass );
+        SuiteClasses annotation = klass.getAnnotation( SuiteClasses.class );
+        if( annotation == null ) {
+            throw new InitializationError( "class '" + klass.getName() + "' must have a SuiteClasses annotation" );
+        }
+        m_classes = Arrays.<Class<?>>asList( annotation.value() );
+        m_order = new ArrayList<Class<?>>( m_classes );
+        m_builder = builder;
+        m_limit = Math.max( 0, new ConfigurationManager().getIntProperty( Constants.EXAM_PRESTAGE_LIMIT_KEY, 1 ) );
+    }
+
+    @Override
+    protected List<Class<?>> getChildren()
+    {
+        return m_classes;
+    }
+
+    /**
+     * Describes a class that has not run yet by its test methods, so that no runner needs to be created.
+     */
+    @Override
+    protected Description describeChild( Class<?> child )
+    {
+        synchronized( m_descriptions ) {
+            Description description = m_descriptions.get( child );
+            if( description != null ) {
+                return description;
+            }
+        }
+        Description description = Description.createSuiteDescription( child );
+        for( Method method : child.getMethods() ) {
+            if( method.isAnnotationPresent( Test.class ) ) {
+                description.addChild( Description.createTestDescription( child, method.getName() ) );
+            }
+        }
+        return description;
+    }
+
+    /**
+     * Records the filter, it is applied to the runner of each class when that is created.
+     */
+    @Override
+    public void filter( Filter filter )
+        throws NoTestsRemainException
+    {
+        super.filter( filter );
+        for( Iterator<Class<?>> it = m_order.iterator(); it.hasNext(); ) {
+            if( !filter.shouldRun( describeChild( it.next() ) ) ) {
+                it.remove();
+            }
+        }
+        m_filters.add( new MethodFilter( filter ) );
+    }
+
+    /**
+     * Records the sorter, it is applied to the runner of each class when that is created.
+     */
+    @Override
+    public void sort( final Sorter sorter )
+    {
+        super.sort( sorter );
+        Collections.sort( m_order, new Comparator<Class<?>>() {
+            public int compare( Class<?> c1, Class<?> c2 )
+            {
+                return sorter.compare( describeChild( c1 ), describeChild( c2 ) );
+            }
+        } );
+        m_sorters.add( sorter );
+    }
+
+    @Override
+    public void run( RunNotifier notifier )
+    {
+        try {
+            super.run( notifier );
+        } finally {
+            discardStaged();
+        }
+    }
+
+    @Override
+    protected void runChild( Class<?> child, RunNotifier notifier )
+    {
+        Future<Runner> current = stage( child );
+        // look ahead
+        int index = m_order.indexOf( child );
+        for( int i = index + 1; i <= index + m_limit && i < m_order.size(); i++ ) {
+            stage( m_order.get( i ) );
+        }
+        Runner runner;
+        try {
+            runner = current.get();
+        } catch( ExecutionException e ) {
+            notifier.fireTestFailure( new Failure( describeChild( child ), e.getCause() ) );
+            return;
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            notifier.fireTestFailure( new Failure( describeChild( child ), e ) );
+            return;
+        } finally {
+            synchronized( m_staged ) {
+                m_staged.remove( child );
+            }
+        }
+        if( runner == null ) {
+            return;
+        }
+        // the runner is done after that, so describeChild() must not ask for it again.
+        synchronized( m_descriptions ) {
+            m_descriptions.put( child, runner.getDescription() );
+        }
+        runner.run( notifier );
+    }
+
+    private Future<Runner> stage( final Class<?> klass )
+    {
+        synchronized( m_staged ) {
+            Future<Runner> future = m_staged.get( klass );
+            if( future == null ) {
+                LOG.debug( "Preparing " + klass.getName() );
+                future = getExecutor().submit( new Callable<Runner>() {
+                    public Runner call()
+                        throws Exception
+                    {
+                        return prepare( m_builder.safeRunnerForClass( klass ) );
+                    }
+                } );
+                m_staged.put( klass, future );
+            }
+            return future;
+        }
+    }
+
+    /**
+     * Applies the recorded filters and sorters.
+     *
+     * @return the runner or null if it has no tests left.
+     */
+    private Runner prepare( Runner runner )
+    {
+        if( runner == null ) {
+            return null;
+        }
+        try {
+            for( Filter filter : m_filters ) {
+                filter.apply( runner );
+            }
+        } catch( NoTestsRemainException e ) {
+            LOG.debug( "No tests left in " + runner.getDescription() );
+            tearDown( runner );
+            return null;
+        }
+        for( Sorter sorter : m_sorters ) {
+            sorter.apply( runner );
+        }
+        return runner;
+    }
+
+    private synchronized ExecutorService getExecutor()
+    {
+        if( m_executor == null ) {
+            m_executor = Executors.newFixedThreadPool( Math.max( 1, m_limit ), new ThreadFactory() {
+                public Thread newThread( Runnable r )
+                {
+                    Thread thread = new Thread( r, "Pax Exam Prestage-" + getTestClass().getJavaClass().getSimpleName() );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+        }
+        return m_executor;
+    }
+
+    /**
+     * Tears down runners that have been prepared but not run (like when classes have been filtered).
+     */
+    private void discardStaged()
+    {
+        synchronized( m_staged ) {
+            for( Future<Runner> future : m_staged.values() ) {
+                try {
+                    tearDown( future.get() );
+                } catch( Exception e ) {
+                    LOG.warn( "Problem discarding prepared runner.", e );
+                }
+            }
+            m_staged.clear();
+        }
+        synchronized( this ) {
+            if( m_executor != null ) {
+                m_executor.shutdown();
+                m_executor = null;
+            }
+        }
+    }
+
+    private static void tearDown( Runner runner )
+    {
+        if( runner instanceof JUnit4TestRunner ) {
+            ( (JUnit4TestRunner) runner ).tearDown();
+        }
+    }
+
+    /**
+     * Applies a filter made for the descriptions of this suite to a runner. The tests of {@link JUnit4TestRunner} are
+     * named like "method:container", the filter gets to see the plain method name.
+     */
+    private static class MethodFilter extends Filter {
+
+        final private Filter m_filter;
+
+        MethodFilter( Filter filter )
+        {
+            m_filter = filter;
+        }
+
+        @Override
+        public boolean shouldRun( Description description )
+        {
+            String name = description.getMethodName();
+            if( !description.isTest() || name == null || name.indexOf( ':' ) < 0 || description.getTestClass() == null ) {
+                return m_filter.shouldRun( description );
+            }
+            return m_filter.shouldRun( Description.createTestDescription( description.getTestClass(), name.substring( 0, name.indexOf( ':' ) ) ) );
+        }
+
+        @Override
+        public String describe()
+        {
+            return m_filter.describe();
+        }
+    }
+}
@@ -29,12 +29,18 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.internal.runners.model.ReflectiveCallable;
 import org.junit.internal.runners.statements.Fail;
 import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.BlockJUnit4ClassRunner;
 import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.RunnerScheduler;
 import org.junit.runners.model.Statement;
 import org.ops4j.pax.exam.ConfigurationManager;
 import org.ops4j.pax.exam.Constants;
@@ -49,10 +55,12 @@ import org.ops4j.pax.exam.TestProbeBuilder;
 import org.ops4j.pax.exam.spi.DefaultExamReactor;
 import org.ops4j.pax.exam.spi.DefaultExamSystem;
 import org.ops4j.pax.exam.spi.ExamReactor;
+import org.ops4j.pax.exam.spi.ParallelStagedExamReactor;
 import org.ops4j.pax.exam.spi.PaxExamRuntime;
 import org.ops4j.pax.exam.spi.StagedExamReactor;
 import org.ops4j.pax.exam.spi.StagedExamReactorFactory;
 import org.ops4j.pax.exam.spi.reactors.AllConfinedStagedReactorFactory;
+import org.ops4j.pax.exam.spi.reactors.CompositeStagedReactorFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -85,6 +93,12 @@ public class JUnit4TestRunner extends BlockJUnit4ClassRunner {
         super( klass );
 
         m_reactor = prepareReactor();
+        if( m_reactor instanceof ParallelStagedExamReactor ) {
+            int parallelism = ( (ParallelStagedExamReactor) m_reactor ).getParallelism();
+            if( parallelism > 1 ) {
+                setScheduler( new ParallelScheduler( parallelism ) );
+            }
+        }
     }
 
     @Override
@@ -95,10 +109,19 @@ public class JUnit4TestRunner extends BlockJUnit4ClassRunner {
         } catch( Exception e ) {
             throw new TestContainerException( "Problem interacting with reactor.", e );
         } finally {
-            m_reactor.tearDown();
+            tearDown();
         }
     }
 
+    /**
+     * Releases the resources of the staged reactor. Called after running, or by a suite if this runner has been
+     * prepared but is not going to be run.
+     */
+    void tearDown()
+    {
+        m_reactor.tearDown();
+    }
+
     /**
      * Override to avoid running BeforeClass and AfterClass by the driver.
      * They shall only be run by the container.
@@ -200,6 +223,8 @@ public class JUnit4TestRunner extends BlockJUnit4ClassRunner {
         throws IOException, ExamConfigurationException
     {
         TestProbeBuilder probe = m_system.createProbe(  );
+        // the driver is not deployed into the container
+        probe.ignorePackageOf( JUnit4TestRunner.class );
         probe = overwriteWithUserDefinition( testClass, testClassInstance, probe );
 
         //probe.setAnchor( testClass );
@@ -244,7 +269,35 @@ public class JUnit4TestRunner extends BlockJUnit4ClassRunner {
             // default:
             fact = new AllConfinedStagedReactorFactory();
         }
-        return fact;
+        return withMethodOverrides( fact );
+    }
+
+    /**
+     * Tests annotated with their own {@link ExamReactorStrategy} are run by a reactor of that strategy.
+     * All others stay with the strategy of the class.
+     */
+    private StagedExamReactorFactory withMethodOverrides( StagedExamReactorFactory classFactory )
+        throws InstantiationException, IllegalAccessException
+    {
+        CompositeStagedReactorFactory composite = null;
+        Map<Class<?>, StagedExamReactorFactory> factories = new HashMap<Class<?>, StagedExamReactorFactory>();
+        factories.put( classFactory.getClass(), classFactory );
+        for( Map.Entry<TestAddress, FrameworkMethod> entry : m_map.entrySet() ) {
+            ExamReactorStrategy strategy = entry.getValue().getAnnotation( ExamReactorStrategy.class );
+            if( strategy != null && strategy.value()[ 0 ] != classFactory.getClass() ) {
+                StagedExamReactorFactory fact = factories.get( strategy.value()[ 0 ] );
+                if( fact == null ) {
+                    fact = strategy.value()[ 0 ].newInstance();
+                    factories.put( strategy.value()[ 0 ], fact );
+                }
+                if( composite == null ) {
+                    composite = new CompositeStagedReactorFactory( classFactory );
+                }
+                LOG.debug( "Using " + strategy.value()[ 0 ].getSimpleName() + " for " + entry.getValue().getName() );
+                composite.override( entry.getKey(), fact );
+            }
+        }
+        return composite == null ? classFactory : composite;
     }
 
     private DefaultExamReactor getReactor( Class<?> testClass )
@@ -324,4 +377,43 @@ public class JUnit4TestRunner extends BlockJUnit4ClassRunner {
         LOG.debug( "No User defined probe hook found" );
         return probe;
     }
+
+    /**
+     * Runs children on a fixed number of threads. Used for reactors that support parallel invocation.
+     */
+    private static class ParallelScheduler implements RunnerScheduler {
+
+        private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+        final private ExecutorService m_executor;
+
+        ParallelScheduler( int threads )
+        {
+            m_executor = Executors.newFixedThreadPool( threads, new ThreadFactory()
+            {
+                public Thread newThread( Runnable r )
+                {
+                    Thread thread = new Thread( r, "Pax Exam Test Method-" + THREAD_COUNT.incrementAndGet() );
+                    // finished() waits for the children, daemon only matters if it is never called.
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+        }
+
+        public void schedule( Runnable childStatement )
+        {
+            m_executor.submit( childStatement );
+        }
+
+        public void finished()
+        {
+            m_executor.shutdown();
+            try {
+                m_executor.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+            } catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 }
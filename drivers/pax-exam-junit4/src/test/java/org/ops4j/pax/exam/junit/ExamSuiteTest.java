@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.junit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.Runner;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.manipulation.Filterable;
+import org.junit.runner.manipulation.NoTestsRemainException;
+import org.junit.runner.manipulation.Sortable;
+import org.junit.runner.manipulation.Sorter;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.Suite.SuiteClasses;
+import org.junit.runners.model.RunnerBuilder;
+import org.ops4j.pax.exam.ConfigurationManager;
+import org.ops4j.pax.exam.Constants;
+
+/**
+ *
+ */
+public class ExamSuiteTest {
+
+    @Test
+    public void testAtMostLimitPlusOneRunnersExist()
+        throws Exception
+    {
+        CountingBuilder builder = new CountingBuilder();
+        ExamSuite suite = new ExamSuite( AllSample.class, builder );
+
+        suite.getDescription();
+        assertThat( builder.m_created, is( 0 ) );
+
+        suite.run( new RunNotifier() );
+        int limit = new ConfigurationManager().getIntProperty( Constants.EXAM_PRESTAGE_LIMIT_KEY, 1 );
+        assertTrue( "at most " + ( limit + 1 ) + " runners at once, got " + builder.m_max, builder.m_max <= limit + 1 );
+        assertThat( builder.m_run, is( Arrays.<Class<?>>asList( FirstSample.class, SecondSample.class, ThirdSample.class, FourthSample.class ) ) );
+    }
+
+    @Test
+    public void testFilterAndSorterAreAppliedWhenStaged()
+        throws Exception
+    {
+        CountingBuilder builder = new CountingBuilder();
+        ExamSuite suite = new ExamSuite( AllSample.class, builder );
+
+        suite.filter( Filter.matchMethodDescription( Description.createTestDescription( ThirdSample.class, "test" ) ) );
+        suite.sort( new Sorter( new Comparator<Description>() {
+            public int compare( Description d1, Description d2 )
+            {
+                return d2.getDisplayName().compareTo( d1.getDisplayName() );
+            }
+        } ) );
+        assertThat( builder.m_created, is( 0 ) );
+
+        suite.run( new RunNotifier() );
+        assertThat( builder.m_created, is( 1 ) );
+        assertThat( builder.m_run, is( Arrays.<Class<?>>asList( ThirdSample.class ) ) );
+        assertThat( builder.m_filtered, is( 1 ) );
+        assertThat( builder.m_sorted, is( 1 ) );
+    }
+
+    @SuiteClasses( { FirstSample.class, SecondSample.class, ThirdSample.class, FourthSample.class } )
+    public static class AllSample {
+    }
+
+    public static class FirstSample {
+
+        @Test
+        public void test()
+        {
+        }
+    }
+
+    public static class SecondSample extends FirstSample {
+    }
+
+    public static class ThirdSample extends FirstSample {
+    }
+
+    public static class FourthSample extends FirstSample {
+    }
+
+    /**
+     * Keeps track of the runners that have been created but did not finish running.
+     */
+    private static class CountingBuilder extends RunnerBuilder {
+
+        private int m_created;
+        private int m_live;
+        private int m_max;
+        private int m_filtered;
+        private int m_sorted;
+        final private List<Class<?>> m_run = new ArrayList<Class<?>>();
+
+        @Override
+        public synchronized Runner runnerForClass( final Class<?> testClass )
+        {
+            m_created++;
+            m_max = Math.max( m_max, ++m_live );
+            return new CountingRunner( testClass );
+        }
+
+        private class CountingRunner extends Runner implements Filterable, Sortable {
+
+            final private Class<?> m_class;
+
+            CountingRunner( Class<?> testClass )
+            {
+                m_class = testClass;
+            }
+
+            @Override
+            public Description getDescription()
+            {
+                Description description = Description.createSuiteDescription( m_class );
+                description.addChild( Description.createTestDescription( m_class, "test:container" ) );
+                return description;
+            }
+
+            public void filter( Filter filter )
+                throws NoTestsRemainException
+            {
+                if( !filter.shouldRun( getDescription().getChildren().get( 0 ) ) ) {
+                    throw new NoTestsRemainException();
+                }
+                synchronized( CountingBuilder.this ) {
+                    m_filtered++;
+                }
+            }
+
+            public void sort( Sorter sorter )
+            {
+                synchronized( CountingBuilder.this ) {
+                    m_sorted++;
+                }
+            }
+
+            @Override
+            public void run( RunNotifier notifier )
+            {
+                synchronized( CountingBuilder.this ) {
+                    m_run.add( m_class );
+                    m_live--;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ops4j.pax.exam.junit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.ops4j.pax.exam.junit.imports.RunWithSample;
+import org.ops4j.pax.exam.spi.intern.ProbeImports;
+
+/**
+ *
+ */
+public class ProbeImportsTest {
+
+    @Test
+    public void testDriverIsImportedOptionally()
+        throws IOException
+    {
+        String name = RunWithSample.class.getName().replace( '.', '/' ) + ".class";
+        Map<String, URL> probe = new HashMap<String, URL>();
+        probe.put( name, RunWithSample.class.getClassLoader().getResource( name ) );
+
+        List<String> imports = Arrays.asList( new ProbeImports( probe, Collections.<String>emptySet() ).getHeader().split( "," ) );
+
+        assertThat( imports.contains( "org.ops4j.pax.exam.junit;resolution:=optional" ), is( true ) );
+        assertThat( imports.contains( "org.ops4j.pax.exam" ), is( true ) );
+        assertThat( imports.contains( "org.junit" ), is( true ) );
+    }
+}